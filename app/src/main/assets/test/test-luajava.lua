@@ -103,6 +103,24 @@ test("luajava.createArray", function()
     return array .. " (#array: " .. #array .. ")" .. " (" .. Arrays.toString(array) .. ")"
 end, NO_NIL)
 
+test("luajava.createArray (table)", function()
+    local int = luajava.bindClass("int")
+    local array = luajava.createArray(int, {1, 2, 3})
+    return array .. " (#array: " .. #array .. ")" .. " (" .. Arrays.toString(array) .. ")"
+end, NO_NIL)
+
+test("luajava.typedArray", function()
+    local ByteBuffer = luajava.bindClass("java.nio.ByteBuffer")
+    local ByteOrder = luajava.bindClass("java.nio.ByteOrder")
+    local float = luajava.bindClass("float")
+    local buffer = ByteBuffer:allocateDirect(16):order(ByteOrder:nativeOrder())
+    local array = luajava.typedArray(buffer, float)
+    for i = 0, #array - 1 do
+        array[i] = i / 2
+    end
+    return array[3] .. " (#array: " .. #array .. ")"
+end, NO_NIL)
+
 test("luajava.createProxy", function()
     local View_OnClickListener = luajava.bindClass("android.view.View$OnClickListener")
     return luajava.createProxy(View_OnClickListener, {
@@ -121,3 +139,9 @@ test("luajava.unwrap", function()
     })
     return luajava.unwrap(proxy)
 end, NO_NIL)
+
+test("luajava.share", function()
+    local shared = luajava.share({ name = "config", list = { 1, 2, 3 } })
+    local ok = pcall(function() shared.name = "changed" end)
+    return shared.name .. " (#list: " .. #shared.list .. ") (writable: " .. tostring(ok) .. ")"
+end, NO_NIL)
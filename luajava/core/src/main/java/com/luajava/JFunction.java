@@ -43,12 +43,48 @@ public abstract class JFunction implements CFunction {
      */
     public abstract LuaValue[] call(Lua L, LuaValue[] args);
 
+    /**
+     * Whether the arguments are only used during the call
+     *
+     * <p>
+     * If true, the arguments are obtained in a {@link LuaScope}, so their refs are released right
+     * after the call returns instead of waiting for garbage collection. Such functions must not
+     * retain their arguments, e.g. in fields or proxies, past the call. Values created during the
+     * call are not part of the scope.
+     * </p>
+     *
+     * @return false by default
+     */
+    protected boolean isScoped() {
+        return false;
+    }
+
     @Override
     public int __call(Lua L) throws LuaException {
-        LuaValue[] args = new LuaValue[L.getTop()];
-        for (int i = 0; i < args.length; i++) {
-            args[args.length - i - 1] = L.get();
+        if (!isScoped()) {
+            return callAndPush(L);
+        }
+        LuaScope scope = L.scope();
+        try {
+            LuaValue[] args;
+            try {
+                args = L.getAll();
+            } finally {
+                // only the arguments are scoped, values escaping the call stay collectable
+                scope.detach();
+            }
+            return callAndPush(L, args);
+        } finally {
+            scope.close();
         }
+    }
+
+    private int callAndPush(Lua L) throws LuaException {
+        return callAndPush(L, L.getAll());
+    }
+
+    private int callAndPush(Lua L, LuaValue[] args) throws LuaException {
+        L.pop(args.length);
         LuaValue[] results = this.call(L, args);
         if (results != null) {
             for (LuaValue result : results) {
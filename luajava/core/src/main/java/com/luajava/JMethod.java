@@ -22,29 +22,49 @@
 
 package com.luajava;
 
+import com.luajava.util.MemberIndex;
+import com.luajava.util.MethodGroup;
 import com.luajava.value.LuaValue;
 
 import java.lang.reflect.Method;
 
 public class JMethod implements CFunction {
     private final Object object;
-    private final Class<?> clazz;
-    private final String name;
+    private final MethodGroup group;
 
     public JMethod(Object object, Class<?> clazz, String methodName) {
         if (clazz == null || methodName == null) {
             throw new IllegalArgumentException("Class and method name cannot be null");
         }
         this.object = object;
-        this.clazz = clazz;
-        this.name = methodName;
+        this.group = MemberIndex.of(clazz).getMethodGroup(methodName, object == null);
+    }
+
+    public JMethod(Object object, MethodGroup group) {
+        if (group == null) {
+            throw new IllegalArgumentException("Method group cannot be null");
+        }
+        this.object = object;
+        this.group = group;
     }
 
     @Override
     public int __call(Lua L) throws LuaException {
+        // Fast path: overloads taking only primitives and strings read their arguments from the stack
+        int top = L.getTop();
+        long signature = group.hasPrimitiveOverload(top) ? JuaAPI.getPrimitiveSignature(L, top) : JuaAPI.NO_SIGNATURE;
+        if (signature != JuaAPI.NO_SIGNATURE) {
+            int index = group.findPrimitive(signature);
+            if (index >= 0) {
+                return JuaAPI.callPrimitiveMethod(L, object, group, index);
+            }
+            // already known to resolve to an overload taking objects
+            if (index == MethodGroup.NOT_PRIMITIVE) signature = JuaAPI.NO_SIGNATURE;
+        }
         LuaValue[] values = L.getAll();
-        Method method = JuaAPI.matchMethod(object, clazz.getMethods(), name, values);
+        Method method = JuaAPI.matchMethod(object, group, values);
+        if (signature != JuaAPI.NO_SIGNATURE) group.recordPrimitive(signature, method);
         Object result = JuaAPI.callMethod(object, method, values);
         return L.push(result, method.getReturnType());
     }
-}
\ No newline at end of file
+}
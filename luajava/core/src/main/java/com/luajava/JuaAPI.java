@@ -23,7 +23,10 @@
 package com.luajava;
 
 import com.luajava.util.ClassUtils;
+import com.luajava.util.MemberIndex;
+import com.luajava.util.MethodGroup;
 import com.luajava.value.LuaProxy;
+import com.luajava.value.LuaType;
 import com.luajava.value.LuaValue;
 
 import java.io.PrintWriter;
@@ -40,6 +43,9 @@ import java.nio.ByteBuffer;
 
 // LuaJava Helper
 public final class JuaAPI {
+    public static final long NO_SIGNATURE = -1;
+    private static final int MAX_PRIMITIVE_PARAMS = 15;
+
     public static boolean matchParams(Class<?>[] paramTypes, LuaValue[] values) throws LuaException {
         if (paramTypes.length != values.length) {
             return false;
@@ -103,6 +109,61 @@ public final class JuaAPI {
         return objects;
     }
 
+    /**
+     * Packs the types of the stack slots {@code 1..top}, four bits each, for the primitive overload cache
+     *
+     * @return {@link #NO_SIGNATURE} if an argument is not nil, a boolean, a number or a string
+     */
+    public static long getPrimitiveSignature(Lua L, int top) throws LuaException {
+        if (top > MAX_PRIMITIVE_PARAMS) return NO_SIGNATURE;
+        long signature = (long) top << 60;
+        for (int i = 0; i < top; i++) {
+            LuaType type = L.type(i + 1);
+            switch (type) {
+                case NIL:
+                case BOOLEAN:
+                case NUMBER:
+                case STRING:
+                    signature |= (long) type.ordinal() << (i * 4);
+                    break;
+                default:
+                    return NO_SIGNATURE;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Calls an overload taking only primitives or strings with typed JNI calls, reading the arguments
+     * straight from the stack slots {@code 1..n} and pushing primitive results directly
+     *
+     * <p>
+     * Only valid for arguments already matched against the overload through
+     * {@link #getPrimitiveSignature(Lua, int)}. No argument array is created and nothing is boxed.
+     * </p>
+     */
+    public static int callPrimitiveMethod(Lua L, Object object, MethodGroup group, int index) throws LuaException {
+        Method method = group.getMethods()[index];
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (!isStatic && object == null) {
+            throw new LuaException("Invalid method call." +
+                    "\n  at " + method +
+                    "\n  -> receiver is null");
+        }
+        int returnKind = group.getReturnKind(index);
+        Object result;
+        try {
+            result = Lua.C.luaJ_invokemethod(L.getPointer(), isStatic ? null : object, method.getDeclaringClass(),
+                    group.getMethodId(index), group.getParameterKinds(index), returnKind);
+        } catch (Throwable e) {
+            throw new LuaException("Invalid method call." +
+                    "\n  at " + method +
+                    "\n  -> ", e);
+        }
+        // primitive and void results are already on the stack
+        return returnKind == MethodGroup.KIND_OBJECT ? L.push(result, method.getReturnType()) : 1;
+    }
+
     public static Object callMethod(Object object, Method method, Class<?>[] paramTypes, LuaValue[] values) throws InvocationTargetException, IllegalAccessException, LuaException {
         Object[] objects = method.isVarArgs()
                 ? convertVarParams(paramTypes, values)
@@ -151,10 +212,52 @@ public final class JuaAPI {
         throw new LuaException(msg.toString());
     }
 
+    /**
+     * Matches an overload through the inline cache of the method group
+     *
+     * @param object the receiver, {@code null} for static calls
+     * @param group  the overloads
+     * @param values the arguments
+     * @return the matched method
+     */
+    public static Method matchMethod(Object object, MethodGroup group, LuaValue[] values) throws LuaException {
+        Object[] signature = getSignature(values);
+        if (signature != null) {
+            Method method = group.find(signature);
+            if (method != null) return method;
+        }
+        Method method = matchMethod(object, group.getMethods(), group.getName(), values);
+        if (signature != null) group.record(signature, method);
+        return method;
+    }
+
+    /**
+     * Returns the keys overload matching depends on: the Lua type of each argument,
+     * or the class of the wrapped object for Java object userdata
+     *
+     * @return {@code null} if the arguments cannot be cached
+     */
+    public static Object[] getSignature(LuaValue[] values) throws LuaException {
+        Object[] signature = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            LuaValue value = values[i];
+            LuaType type = value.type();
+            if (type == LuaType.USERDATA && value.isJavaObject()) {
+                signature[i] = value.toJavaObject().getClass();
+            } else if (type == LuaType.FUNCTION && value.isJavaFunction()) {
+                return null;
+            } else {
+                signature[i] = type;
+            }
+        }
+        return signature;
+    }
+
     public static Object callConstructor(Constructor<?> constructor, Class<?>[] paramTypes, LuaValue[] values) throws InvocationTargetException, IllegalAccessException, InstantiationException, LuaException {
         Object[] objects = constructor.isVarArgs()
                 ? convertVarParams(paramTypes, values)
                 : convertParams(paramTypes, values);
+        if (!constructor.isAccessible()) ClassUtils.makeAccessible(constructor);
         return constructor.newInstance(objects);
     }
 
@@ -195,59 +298,22 @@ public final class JuaAPI {
     }
 
 
-    // 0=>null, 1=>field, 2=>method, 3=>get method, 4=>get method(first char to upper case), 5=>get method(first char to lower case)
-    public static int jclassIndex(long ptr, Class<?> clazz, String name) throws InvocationTargetException, IllegalAccessException, LuaException {
-        // Get lua instance
-        Lua L = Jua.get(ptr);
-        // Class.STATIC_FIELD
-        Field field = ClassUtils.getPublicStaticField(clazz, name);
-        if (field != null) return L.push(ClassUtils.getField(field), field.getType());
-        // Class.InnerClass
-        Class<?> innerClass = ClassUtils.getInnerClass(clazz, name);
-        if (innerClass != null) return L.push(innerClass);
-        // Class.staticMethod(XXX)
-        Method[] methods = clazz.getMethods();
-        String fieldMethodName1; // get Xxx
-        String fieldMethodName2; // get xXX
-        Method fieldMethod1 = null;
-        Method fieldMethod2 = null;
-        {
-            char firstChar = name.charAt(0);
-            boolean isLowerCase = Character.isLowerCase(firstChar);
-            final String SUFFIX = name.substring(1);
-            final String PREFIX = "get";
-            if (isLowerCase) {
-                fieldMethodName1 = PREFIX + Character.toUpperCase(firstChar) + SUFFIX;
-                fieldMethodName2 = PREFIX + firstChar + SUFFIX;
-            } else {
-                fieldMethodName1 = PREFIX + firstChar + SUFFIX;
-                fieldMethodName2 = PREFIX + Character.toLowerCase(firstChar) + SUFFIX;
-            }
+    public static int jclassIndex(Lua L, Class<?> clazz, String name) throws InvocationTargetException, IllegalAccessException, LuaException {
+        MemberIndex.Member member = MemberIndex.of(clazz).getStatic(name);
+        switch (member.kind) {
+            case MemberIndex.FIELD: // Class.STATIC_FIELD
+                return L.push(ClassUtils.getField(member.field), member.field.getType());
+            case MemberIndex.INNER_CLASS: // Class.InnerClass
+                return L.push(member.innerClass);
+            case MemberIndex.STATIC_METHOD: // Class.staticMethod(XXX)
+                return L.push(new JMethod(null, member.group));
+            case MemberIndex.STATIC_GETTER: // Class.getXxx()
+                return L.push(member.method.invoke(null), member.method.getReturnType());
         }
-        for (Method method : methods) {
-            if (Modifier.isStatic(method.getModifiers())) {
-                String methodName = method.getName();
-                if (name.equals(method.getName())) {
-                    return L.push(new JMethod(null, clazz, name));
-                } else if (fieldMethod1 == null && method.getParameterCount() == 0) {
-                    if (fieldMethodName1.equals(methodName)) {
-                        fieldMethod1 = method;
-                    } else if (fieldMethod2 == null && fieldMethodName2.equals(methodName)) {
-                        fieldMethod2 = method;
-                    }
-                }
-            }
-        }
-        if (fieldMethod1 != null)
-            return L.push(ClassUtils.getMethodField(fieldMethod1), fieldMethod1.getReturnType());
-        else if (fieldMethod2 != null)
-            return L.push(ClassUtils.getMethodField(fieldMethod2), fieldMethod2.getReturnType());
         throw new LuaException(String.format("%s@%s is not a field or method", clazz.getName(), name));
     }
 
-    public static int jclassNewIndex(long ptr, Class<?> clazz, String name) throws InvocationTargetException, IllegalAccessException, LuaException {
-        // Get lua instance
-        Lua L = Jua.get(ptr);
+    public static int jclassNewIndex(Lua L, Class<?> clazz, String name) throws InvocationTargetException, IllegalAccessException, LuaException {
         // Class.STATIC_FIELD = value
         LuaValue[] values = L.getAll(3);
         Field field = ClassUtils.getPublicStaticField(clazz, name);
@@ -301,8 +367,7 @@ public final class JuaAPI {
         throw new LuaException(String.format("%s@%s is not a field", clazz.getName(), name));
     }
 
-    public static int jclassNew(long ptr, Class<?> clazz) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int jclassNew(Lua L, Class<?> clazz) throws LuaException {
         LuaValue[] values = L.getAll(2);
         Constructor<?> constructor;
         try {
@@ -320,77 +385,27 @@ public final class JuaAPI {
     }
 
     /* Java Object */
-    public static int jobjectIndex(long ptr, Object instance, String name) throws IllegalAccessException, InvocationTargetException, LuaException {
-        Lua L = Jua.get(ptr);
-        // Class.STATIC_FIELD
+    public static int jobjectIndex(Lua L, Object instance, String name) throws IllegalAccessException, InvocationTargetException, LuaException {
         Class<?> clazz = instance.getClass();
-        Field field = ClassUtils.getPublicField(clazz, name);
-        if (field != null) return L.push(ClassUtils.getField(instance, field), field.getType());
-        // Class.innerClass
-        Class<?> innerClass = ClassUtils.getInnerClass(clazz, name);
-        if (innerClass != null) return L.push(innerClass);
-        // Class.staticMethod(XXX)
-        Method[] methods = clazz.getMethods();
-        String fieldMethodName1; // get Xxx
-        String fieldMethodName2; // get xXX
-        Method fieldMethod1 = null;
-        Method fieldMethod2 = null;
-        Method staticFieldMethod1 = null;
-        Method staticFieldMethod2 = null;
-        Method staticMethod = null;
-        {
-            char firstChar = name.charAt(0);
-            boolean isLowerCase = Character.isLowerCase(firstChar);
-            final String SUFFIX = name.substring(1);
-            final String PREFIX = "get";
-            if (isLowerCase) {
-                fieldMethodName1 = PREFIX + Character.toUpperCase(firstChar) + SUFFIX;
-                fieldMethodName2 = PREFIX + firstChar + SUFFIX;
-            } else {
-                fieldMethodName1 = PREFIX + firstChar + SUFFIX;
-                fieldMethodName2 = PREFIX + Character.toLowerCase(firstChar) + SUFFIX;
-            }
+        MemberIndex.Member member = MemberIndex.of(clazz).get(name);
+        switch (member.kind) {
+            case MemberIndex.FIELD: // object.field
+                return L.push(ClassUtils.getField(instance, member.field), member.field.getType());
+            case MemberIndex.INNER_CLASS: // Class.innerClass
+                return L.push(member.innerClass);
+            case MemberIndex.METHOD: // object.methodName
+                return L.push(new JMethod(instance, member.group));
+            case MemberIndex.STATIC_METHOD: // Class.methodName
+                return L.push(new JMethod(null, member.group));
+            case MemberIndex.GETTER: // object.getXxx()
+                return L.push(member.method.invoke(instance), member.method.getReturnType());
+            case MemberIndex.STATIC_GETTER: // Class.getXxx()
+                return L.push(member.method.invoke(null), member.method.getReturnType());
         }
-        for (Method method : methods) {
-            String methodName = method.getName();
-            if (!Modifier.isStatic(method.getModifiers())) { // instance method first
-                if (name.equals(method.getName())) { // object.methodName
-                    return L.push(new JMethod(instance, clazz, name));
-                } else if (fieldMethod1 == null && method.getParameterCount() == 0) { // object.get Xxx
-                    if (fieldMethodName1.equals(methodName)) {
-                        fieldMethod1 = method;
-                    } else if (fieldMethod2 == null && fieldMethodName2.equals(methodName)) { // object.get xXX
-                        fieldMethod2 = method;
-                    }
-                }
-            } else if (staticMethod == null) { // Class.methodName
-                if (name.equals(methodName)) {
-                    staticMethod = method;
-                } else if (staticFieldMethod1 == null && method.getParameterCount() == 0) {
-                    if (fieldMethodName1.equals(methodName)) {
-                        staticFieldMethod1 = method;
-                    } else if (staticFieldMethod2 == null && fieldMethodName2.equals(methodName)) { // Class.get xXX
-                        staticFieldMethod2 = method;
-                    }
-                }
-            }
-        }
-        if (staticMethod != null)
-            return L.push(new JMethod(null, clazz, name));
-        else if (fieldMethod1 != null)
-            return L.push(ClassUtils.callMethod(instance, fieldMethod1, null), fieldMethod1.getReturnType());
-        else if (fieldMethod2 != null)
-            return L.push(ClassUtils.callMethod(instance, fieldMethod2, null), fieldMethod2.getReturnType());
-        else if (staticFieldMethod1 != null)
-            return L.push(ClassUtils.callMethod(null, staticFieldMethod1, null), staticFieldMethod1.getReturnType());
-        else if (staticFieldMethod2 != null)
-            return L.push(ClassUtils.callMethod(null, staticFieldMethod2, null), staticFieldMethod2.getReturnType());
         throw new LuaException(String.format("%s@%s is not a field or method", clazz.getName(), name));
     }
 
-    public static int jobjectNewIndex(long ptr, Object object, String name) throws InvocationTargetException, IllegalAccessException, LuaException {
-        // Get lua instance
-        Lua L = Jua.get(ptr);
+    public static int jobjectNewIndex(Lua L, Object object, String name) throws InvocationTargetException, IllegalAccessException, LuaException {
         Class<?> clazz = object.getClass();
         LuaValue[] values = L.getAll(3);
         // object.field = value
@@ -463,8 +478,7 @@ public final class JuaAPI {
 
     private final static String[] LENGTH_DEFAULT_METHOD_NAME = new String[]{"length", "size"};
 
-    public static int jobjectLength(long ptr, Object instance) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int jobjectLength(Lua L, Object instance) throws LuaException {
         Class<?> clazz = instance.getClass();
         for (String name : LENGTH_DEFAULT_METHOD_NAME) {
             Object result = ClassUtils.callObjectNoArgsMethod(instance, name);
@@ -473,16 +487,14 @@ public final class JuaAPI {
         throw new LuaException(String.format("%s has no default method to get length", clazz.getName()));
     }
 
-    public static int jarrayIndex(long ptr, Object array) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int jarrayIndex(Lua L, Object array) throws LuaException {
         int index = (int) L.get(2).toJavaObject(int.class);
         Class<?> type = array.getClass().getComponentType();
         Object object = Array.get(array, index);
         return L.push(object, type);
     }
 
-    public static int jarrayNewIndex(long ptr, Object array) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int jarrayNewIndex(Lua L, Object array) throws LuaException {
         Class<?> type = array.getClass().getComponentType();
         int index = (int) L.get(2).toJavaObject(int.class);
         Object value = L.get(3).toJavaObject(type);
@@ -490,8 +502,7 @@ public final class JuaAPI {
         return 0;
     }
 
-    public static int jarrayIpairsIterator(long ptr, Object array) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int jarrayIpairsIterator(Lua L, Object array) throws LuaException {
         int index = (int) L.get(2).toJavaObject(int.class);
         int nextIndex = index + 1;
         if (nextIndex >= Array.getLength(array)) {
@@ -502,6 +513,14 @@ public final class JuaAPI {
         return 2;
     }
 
+    public static int jviewIndex(Lua L, Object view) throws LuaException {
+        return ((LuaView) view).index(L);
+    }
+
+    public static int jviewMaterialize(Lua L, Object view) throws LuaException {
+        return ((LuaView) view).pushAll(L);
+    }
+
     public static String getStackTrace(Throwable throwable) {
         StringWriter sw = new StringWriter(2048);
         PrintWriter pw = new PrintWriter(sw);
@@ -514,11 +533,11 @@ public final class JuaAPI {
         return ByteBuffer.allocateDirect(size);
     }
 
-    public static int unwrap(long id, Object obj) throws LuaException {
+    public static int unwrap(Lua L, Object obj) throws LuaException {
         InvocationHandler handler = Proxy.getInvocationHandler(obj);
         if (handler instanceof LuaProxy) {
             LuaProxy proxy = (LuaProxy) handler;
-            if (proxy.state().L == id) {
+            if (proxy.state().getPointer() == L.getPointer()) {
                 return proxy.unwrap();
             }
             throw new IllegalArgumentException("Cannot unwrap LuaProxy on different LuaState");
@@ -533,24 +552,22 @@ public final class JuaAPI {
      * Used in <code>jmoduleLoad</code> in <code>jni/luajava/juaapi.cpp</code>
      * </p>
      *
-     * @param id     see {@link Jua#get(long)}
+     * @param L      the calling Lua state
      * @param module the module name
      * @return always 1
      */
-    public static int jmoduleLoad(long id, String module) throws Exception {
-        Lua L = Jua.get(id);
+    public static int jmoduleLoad(Lua L, String module) throws Exception {
         return L.loadExternal(module);
     }
 
     /**
      * Calls a {@link CFunction}
      *
-     * @param index the id of {@link Jua} thread calling this method
+     * @param L   the calling Lua state
      * @param obj   the {@link CFunction} object
      * @return the number result pushed on stack
      */
-    public static int jfunctionCall(long index, Object obj) throws Exception {
-        Lua L = Jua.get(index);
+    public static int jfunctionCall(Lua L, Object obj) throws Exception {
         if (obj instanceof CFunction) {
             return ((CFunction) obj).__call(L);
         } else {
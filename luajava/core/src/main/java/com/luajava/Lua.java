@@ -28,24 +28,33 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.luajava.cleaner.LuaReferable;
-import com.luajava.cleaner.LuaReference;
+import com.luajava.cleaner.LuaReferenceManager;
 import com.luajava.util.ClassUtils;
 
-import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import com.luajava.value.LuaIterator;
 import com.luajava.value.LuaProxy;
+import com.luajava.value.LuaProxyQueue;
 import com.luajava.value.LuaType;
 import com.luajava.value.LuaValue;
 import com.luajava.value.immutable.LuaBoolean;
@@ -65,16 +74,33 @@ import com.luajava.value.referable.LuaUserdata;
 @SuppressWarnings("unused")
 public class Lua {
     protected volatile ExternalLoader loader;
-    protected final ReferenceQueue<LuaReferable> recyclableReferences;
-    protected final ConcurrentHashMap<Integer, LuaReference<?>> recordedReferences;
+    protected final LuaReferenceManager references;
+    // innermost open scope, null if none; only used on main states, threads share it through main
+    protected LuaScope scope;
     public final LuaNil NIL;
     public final LuaBoolean TRUE, FALSE;
     public static final String JAVA_GLOBAL_THROWABLE = "__java_throwable__";
     public static final Object NONE = new Object();
     public static LuaNatives C;
     protected final long L;
+    // the state owning the registry, this for main states
+    protected final Lua main;
     protected static final String TAG = "LuaJava";
     protected LuaHandler handler;
+    protected volatile boolean resolveProxies;
+    protected volatile LuaProxyQueue proxyQueue;
+    // Reused by getSnapshot, grown on demand
+    private int[] snapshotTypes = new int[0];
+    private double[] snapshotNumbers = new double[0];
+    private int[] snapshotRefs = new int[0];
+    // Finished threads kept for reuse by acquireThread, shared with the threads of the state
+    private final ArrayDeque<Lua> threadPool;
+    // Threads created by acquireThread and not discarded yet, pooled or in use, guarded by threadPool
+    private final HashSet<Lua> threads;
+    private int threadPoolSize = 64;
+    private long threadsCreated, threadsReused;
+    // Registry reference anchoring a pooled thread, LUA_NOREF otherwise
+    private int threadRef = LuaConsts.LUA_NOREF;
 
     /**
      * Creates a new Lua (main) state
@@ -82,9 +108,12 @@ public class Lua {
     public Lua() {
         if (C == null) C = LuaNatives.getInstance();
         L = C.luaJ_newstate();
+        main = this;
+        threadPool = new ArrayDeque<>();
+        threads = new HashSet<>();
+        C.luaJ_setstate(L, this);
         loader = null;
-        recyclableReferences = new ReferenceQueue<>();
-        recordedReferences = new ConcurrentHashMap<>();
+        references = new LuaReferenceManager(C, L);
         NIL = LuaNil.from(this);
         TRUE = LuaBoolean.from(this, true);
         FALSE = LuaBoolean.from(this, false);
@@ -96,16 +125,38 @@ public class Lua {
         this.handler = handler;
     }
 
+    /**
+     * Binds a thread (coroutine) of the main state, so that Java calls made inside it get a Lua
+     * instance operating on its own stack
+     *
+     * <p>
+     * The thread shares the registry, references, handler and loader of the main state. Values
+     * created through it are bound to the main state, since they may outlive the thread.
+     * </p>
+     */
+    protected Lua(@NonNull Lua main, long thread) {
+        this.main = main;
+        L = thread;
+        threadPool = main.threadPool;
+        threads = main.threads;
+        C.luaJ_setstate(L, this);
+        references = main.references;
+        NIL = main.NIL;
+        TRUE = main.TRUE;
+        FALSE = main.FALSE;
+    }
+
     public static LuaNatives getNative() {
         if (C == null) C = LuaNatives.getInstance();
         return C;
     }
 
     public void setHandler(LuaHandler handler) {
-        this.handler = handler;
+        main.handler = handler;
     }
 
     public void sendError(Exception e) {
+        LuaHandler handler = main.handler;
         if (handler != null) {
             handler.sendError(e);
         } else {
@@ -178,9 +229,41 @@ public class Lua {
         return 1;
     }
 
+    /**
+     * Pushes the remaining bytes of the buffer as a Lua string
+     *
+     * <p>
+     * Non-direct buffers are pushed only if they are {@link ByteBuffer}s backed by an array.
+     * </p>
+     */
     public int push(@NonNull Buffer buffer) throws LuaException {
+        if (!buffer.isDirect()) {
+            if (buffer instanceof ByteBuffer && buffer.hasArray()) {
+                return pushBytes((byte[]) buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+            checkStack(1);
+            C.lua_pushnil(L);
+            return 1;
+        }
+        int elementSize = buffer instanceof CharBuffer ? 2 : Math.max(getBufferElementSize(buffer), 1);
         checkStack(1);
-        C.luaJ_pushbuffer(L, buffer, buffer.remaining());
+        C.luaJ_pushbuffer(L, buffer, buffer.position() * elementSize, buffer.remaining() * elementSize);
+        return 1;
+    }
+
+    /**
+     * Pushes the bytes as a Lua string, without decoding them into a Java {@link String}
+     */
+    public int pushBytes(@NonNull byte[] bytes) throws LuaException {
+        return pushBytes(bytes, 0, bytes.length);
+    }
+
+    public int pushBytes(@NonNull byte[] bytes, int offset, int length) throws LuaException {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+        }
+        checkStack(1);
+        C.luaJ_pushbytes(L, bytes, offset, length);
         return 1;
     }
 
@@ -217,6 +300,14 @@ public class Lua {
         if (object == null) return pushNil();
         Class<?> objClass = clazz != null ? clazz : object.getClass();
         switch (degree) {
+            case LAZY:
+                if (object instanceof Collection<?>) {
+                    return pushView((Collection<?>) object);
+                } else if (object instanceof Map<?, ?>) {
+                    return pushView((Map<?, ?>) object);
+                }
+                // other objects, including arrays, are pushed as with FULL
+                return push(object, clazz, Conversion.FULL);
             case FULL:
                 if (objClass.isArray()) {
                     return pushArray(object);
@@ -271,7 +362,11 @@ public class Lua {
         } else {
             Class<?> objClass = clazz != null ? clazz : object.getClass();
             if (objClass.isArray()) {
-                C.luaJ_pusharray(L, object);
+                int kind = getPrimitiveArrayKind(objClass.getComponentType());
+                // primitive arrays are indexed from C without calling back into Java
+                if (kind == 0 || C.luaJ_pushtypedarray(L, object, kind) == 0) {
+                    C.luaJ_pusharray(L, object);
+                }
             } else if (object instanceof Class<?>) {
                 C.luaJ_pushclass(L, object);
             } else if (object instanceof CFunction) {
@@ -292,6 +387,10 @@ public class Lua {
         }
         checkStack(2);
         Class<?> type = clazz.getComponentType();
+        int kind = getPrimitiveArrayKind(type);
+        if (kind != 0 && C.luaJ_pushprimitivearray(L, array, kind) != 0) {
+            return 1;
+        }
         int length = Array.getLength(array);
         C.lua_createtable(L, length, 0);
         for (int index = 0; index < length; ++index) {
@@ -301,12 +400,115 @@ public class Lua {
         return 1;
     }
 
+    // Must match JAVA_PRIMITIVE_* in luajavacore.h
+    protected static final int PRIMITIVE_BYTE = 1;
+    protected static final int PRIMITIVE_SHORT = 2;
+    protected static final int PRIMITIVE_INT = 3;
+    protected static final int PRIMITIVE_LONG = 4;
+    protected static final int PRIMITIVE_FLOAT = 5;
+    protected static final int PRIMITIVE_DOUBLE = 6;
+
+    /**
+     * Returns the kind of primitive arrays converted in bulk by native code
+     *
+     * @param componentType the array component type
+     * @return 0 if arrays of this type are converted element by element
+     */
+    protected static int getPrimitiveArrayKind(Class<?> componentType) {
+        if (componentType == int.class) return PRIMITIVE_INT;
+        if (componentType == double.class) return PRIMITIVE_DOUBLE;
+        if (componentType == float.class) return PRIMITIVE_FLOAT;
+        if (componentType == byte.class) return PRIMITIVE_BYTE;
+        if (componentType == long.class) return PRIMITIVE_LONG;
+        if (componentType == short.class) return PRIMITIVE_SHORT;
+        return 0;
+    }
+
+    /**
+     * Pushes a view over the memory of a direct buffer, indexed from 0 like Java arrays
+     *
+     * <p>
+     * Elements are read and written in place, without calling back into Java. Buffers of wider
+     * elements than bytes must use {@link ByteOrder#nativeOrder()} and have their address aligned
+     * to the element size, see {@link ByteBuffer#order(ByteOrder)}.
+     * The buffer must stay unmodified in size for as long as the view is reachable from Lua.
+     * </p>
+     *
+     * @param buffer      a direct buffer
+     * @param elementType the primitive element type, or null for the element type of the buffer
+     */
+    public int pushTypedArray(@NonNull Buffer buffer, @Nullable Class<?> elementType) throws LuaException {
+        if (!buffer.isDirect()) {
+            throw new LuaException(LuaException.LuaError.MEMORY, "Expecting a direct buffer");
+        }
+        int elementSize = getBufferElementSize(buffer);
+        int kind = elementType == null ? getBufferKind(buffer) : getPrimitiveArrayKind(elementType);
+        if (kind == 0 || elementSize == 0) {
+            throw new LuaException("Unsupported typed array element type");
+        }
+        if (kind != PRIMITIVE_BYTE && getBufferOrder(buffer) != ByteOrder.nativeOrder()) {
+            throw new LuaException("Typed array buffers must use the native byte order");
+        }
+        checkStack(1);
+        int result = C.luaJ_pushtypedbuffer(L, buffer, kind, (long) buffer.capacity() * elementSize);
+        if (result == -1) {
+            throw new LuaException("Typed array buffer is not aligned to its element size");
+        } else if (result == 0) {
+            throw new LuaException(LuaException.LuaError.MEMORY, "Cannot access the buffer memory");
+        }
+        return 1;
+    }
+
+    private static ByteOrder getBufferOrder(Buffer buffer) {
+        if (buffer instanceof ByteBuffer) return ((ByteBuffer) buffer).order();
+        if (buffer instanceof IntBuffer) return ((IntBuffer) buffer).order();
+        if (buffer instanceof FloatBuffer) return ((FloatBuffer) buffer).order();
+        if (buffer instanceof DoubleBuffer) return ((DoubleBuffer) buffer).order();
+        if (buffer instanceof ShortBuffer) return ((ShortBuffer) buffer).order();
+        if (buffer instanceof LongBuffer) return ((LongBuffer) buffer).order();
+        return ByteOrder.nativeOrder();
+    }
+
+    private static int getBufferKind(Buffer buffer) {
+        if (buffer instanceof ByteBuffer) return PRIMITIVE_BYTE;
+        if (buffer instanceof IntBuffer) return PRIMITIVE_INT;
+        if (buffer instanceof FloatBuffer) return PRIMITIVE_FLOAT;
+        if (buffer instanceof DoubleBuffer) return PRIMITIVE_DOUBLE;
+        if (buffer instanceof ShortBuffer) return PRIMITIVE_SHORT;
+        if (buffer instanceof LongBuffer) return PRIMITIVE_LONG;
+        return 0;
+    }
+
+    private static int getBufferElementSize(Buffer buffer) {
+        switch (getBufferKind(buffer)) {
+            case PRIMITIVE_BYTE:
+                return 1;
+            case PRIMITIVE_SHORT:
+                return 2;
+            case PRIMITIVE_INT:
+            case PRIMITIVE_FLOAT:
+                return 4;
+            case PRIMITIVE_LONG:
+            case PRIMITIVE_DOUBLE:
+                return 8;
+            default:
+                return 0;
+        }
+    }
+
     public int pushCollection(@NonNull Collection<?> collection) throws LuaException {
+        return pushCollection(collection, Conversion.FULL);
+    }
+
+    /**
+     * @param degree the conversion of the elements
+     */
+    public int pushCollection(@NonNull Collection<?> collection, Conversion degree) throws LuaException {
         checkStack(2);
         C.lua_createtable(L, collection.size(), 0);
         int index = 1;
         for (Object object : collection) {
-            push(object, Conversion.FULL);
+            push(object, degree);
             C.lua_rawseti(L, -2, index);
             index++;
         }
@@ -314,16 +516,62 @@ public class Lua {
     }
 
     public int pushMap(@NonNull Map<?, ?> map) throws LuaException {
+        return pushMap(map, Conversion.FULL);
+    }
+
+    /**
+     * @param degree the conversion of the keys and values
+     */
+    public int pushMap(@NonNull Map<?, ?> map, Conversion degree) throws LuaException {
         checkStack(3);
         C.lua_createtable(L, 0, map.size());
         for (Map.Entry<?, ?> entry : map.entrySet()) {
-            push(entry.getKey(), Conversion.FULL);
-            push(entry.getValue(), Conversion.FULL);
+            push(entry.getKey(), degree);
+            push(entry.getValue(), degree);
             C.lua_rawset(L, -3);
         }
         return 1;
     }
 
+    /**
+     * Pushes a table converting the elements of the collection on first access
+     *
+     * @see Conversion#LAZY
+     */
+    public int pushView(@NonNull Collection<?> collection) throws LuaException {
+        return pushView(LuaView.of(collection));
+    }
+
+    /**
+     * Pushes a table converting the entries of the map on first access
+     *
+     * @see Conversion#LAZY
+     */
+    public int pushView(@NonNull Map<?, ?> map) throws LuaException {
+        return pushView(LuaView.of(map));
+    }
+
+    private int pushView(LuaView view) throws LuaException {
+        checkStack(5);
+        if (C.luaJ_pushview(L, view, view.length()) == 0) {
+            throw new LuaException(LuaException.LuaError.MEMORY, "Cannot create the view table");
+        }
+        return 1;
+    }
+
+    /**
+     * Converts every remaining entry of a view table, turning it into a plain table
+     *
+     * <p>
+     * Does nothing for other values. Raw table accesses ({@link #next(int)}, {@link #rawLength(int)}...)
+     * only see the entries of a view after this.
+     * </p>
+     */
+    public void materializeView(int index) throws LuaException {
+        checkStack(3);
+        checkError(C.luaJ_materializeview(L, index), true);
+    }
+
     public int pushAll(Object[] objects) throws LuaException {
         return pushAll(objects, Conversion.NONE);
     }
@@ -431,31 +679,18 @@ public class Lua {
         }
         int top = getTop();
         startIdx = getAbsoluteIndex(top, startIdx);
-        LuaValue[] values = new LuaValue[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = get(startIdx + i);
-        }
-        return values;
+        return getSnapshot(startIdx, length);
     }
 
     public LuaValue[] getAll() throws LuaException {
-        int top = getTop();
-        LuaValue[] values = new LuaValue[top];
-        for (int i = 0; i < top; i++) {
-            values[i] = get(i + 1);
-        }
-        return values;
+        return getSnapshot(1, getTop());
     }
 
     public LuaValue[] getAll(int startIdx) throws LuaException {
         int targetIdx = getTop();
         startIdx = getAbsoluteIndex(targetIdx, startIdx);
         int length = targetIdx - startIdx + 1;
-        LuaValue[] values = new LuaValue[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = get(startIdx + i);
-        }
-        return values;
+        return getSnapshot(startIdx, length);
     }
 
     public LuaValue[] getAll(int startIdx, int targetIdx) throws LuaException {
@@ -463,13 +698,64 @@ public class Lua {
         startIdx = getAbsoluteIndex(top, startIdx);
         targetIdx = getAbsoluteIndex(top, targetIdx);
         int length = targetIdx - startIdx + 1;
+        return getSnapshot(startIdx, length);
+    }
+
+    /**
+     * Converts {@code length} stack slots starting at the absolute index {@code startIdx}
+     *
+     * <p>
+     * Types, numbers and references of all slots are read by a single native call,
+     * instead of one {@link #type(int)} call plus one value call per slot.
+     * </p>
+     */
+    private LuaValue[] getSnapshot(int startIdx, int length) throws LuaException {
+        if (length <= 0) {
+            return EMPTY_LUA_VALUES;
+        }
+        if (snapshotTypes.length < length) {
+            int capacity = Math.max(length, snapshotTypes.length * 2);
+            snapshotTypes = new int[capacity];
+            snapshotNumbers = new double[capacity];
+            snapshotRefs = new int[capacity];
+        }
+        int[] types = snapshotTypes;
+        double[] numbers = snapshotNumbers;
+        int[] refs = snapshotRefs;
+        C.luaJ_snapshot(L, startIdx, length, types, numbers, refs);
         LuaValue[] values = new LuaValue[length];
         for (int i = 0; i < length; i++) {
-            values[i] = get(startIdx + i);
+            values[i] = fromSnapshot(LuaType.from(types[i]), numbers[i], refs[i]);
         }
         return values;
     }
 
+    private LuaValue fromSnapshot(LuaType type, double number, int ref) {
+        switch (type) {
+            case NONE:
+            case NIL:
+                return fromNull();
+            case BOOLEAN:
+                return from(number != 0);
+            case NUMBER:
+                return LuaNumber.from(this, number);
+            case STRING:
+                return LuaString.fromRef(this, ref);
+            case TABLE:
+                return LuaTable.fromRef(this, ref);
+            case FUNCTION:
+                return LuaFunction.fromRef(this, ref);
+            case LIGHTUSERDATA:
+                return LuaLightUserdata.fromRef(this, ref);
+            case USERDATA:
+                return LuaUserdata.fromRef(this, ref);
+            case THREAD:
+                return LuaThread.fromRef(this, ref);
+            default:
+                return LuaUnknown.fromRef(this, ref, type);
+        }
+    }
+
     public LuaValue get() throws LuaException {
         return get(-1);
     }
@@ -536,6 +822,13 @@ public class Lua {
         return C.luaJ_tostring(L, index);
     }
 
+    /**
+     * @return a copy of the bytes of the string (or number) at the index, {@code null} for other types
+     */
+    public @Nullable byte[] toBytes(int index) {
+        return C.luaJ_tobytes(L, index);
+    }
+
     public @Nullable ByteBuffer toBuffer(int index) {
         return (ByteBuffer) C.luaJ_tobuffer(L, index);
     }
@@ -547,11 +840,148 @@ public class Lua {
 
     // LuaState
     public void close() {
+        if (main != this) {
+            // threads are collected with the main state, only the binding is released
+            C.luaJ_setstate(L, null);
+            return;
+        }
+        LuaProxyQueue queue = proxyQueue;
+        if (queue != null) queue.close();
+        // pooled threads and threads still in use hold a global reference to their Lua instance
+        ArrayList<Lua> bound;
+        synchronized (threadPool) {
+            bound = new ArrayList<>(threads);
+            threads.clear();
+            threadPool.clear();
+        }
+        for (Lua thread : bound) {
+            thread.threadRef = LuaConsts.LUA_NOREF;
+            C.luaJ_setstate(thread.L, null);
+        }
+        references.close();
+        C.luaJ_setstate(L, null);
         C.lua_close(L);
         Jua.remove(L);
     }
 
-    // TODO: support lua_newthread
+    /**
+     * Pushes a new thread and binds it to a Lua instance
+     *
+     * <p>
+     * The thread is only anchored by the stack slot it is pushed into, keep a reference to it
+     * while it is in use, and {@link #close()} the returned instance once done with it.
+     * </p>
+     */
+    public Lua newThread() throws LuaException {
+        checkStack(1);
+        return new Lua(main, C.lua_newthread(L));
+    }
+
+    public boolean isMainState() {
+        return main == this;
+    }
+
+    /**
+     * Takes a thread for running a coroutine, reusing one released by {@link #releaseThread(Lua)}
+     *
+     * <p>
+     * Unlike {@link #newThread()}, nothing is pushed: the thread is anchored in the registry until
+     * released, and no per thread reference is tracked. Its stack is empty. Threads not released
+     * are unbound when the main state is closed.
+     * </p>
+     */
+    public Lua acquireThread() throws LuaException {
+        synchronized (threadPool) {
+            Lua thread = threadPool.pollLast();
+            if (thread != null) {
+                main.threadsReused++;
+                return thread;
+            }
+            main.threadsCreated++;
+        }
+        Lua thread = newThread();
+        thread.threadRef = ref();
+        synchronized (threadPool) {
+            threads.add(thread);
+        }
+        return thread;
+    }
+
+    /**
+     * Returns a thread taken by {@link #acquireThread()}
+     *
+     * <p>
+     * A thread whose function returned is kept for reuse. A thread that raised an error cannot be
+     * resumed again and is closed, as are threads exceeding {@link #setThreadPoolSize(int)}.
+     * </p>
+     */
+    public void releaseThread(@NonNull Lua thread) {
+        // already unbound by closing the main state
+        if (thread.threadRef == LuaConsts.LUA_NOREF) return;
+        if (C.lua_status(thread.L) == LuaConsts.LUA_OK) {
+            thread.setTop(0);
+            synchronized (threadPool) {
+                if (threadPool.size() < main.threadPoolSize) {
+                    threadPool.addLast(thread);
+                    return;
+                }
+            }
+        }
+        discardThread(thread);
+    }
+
+    private void discardThread(Lua thread) {
+        synchronized (threadPool) {
+            threads.remove(thread);
+        }
+        int ref = thread.threadRef;
+        thread.threadRef = LuaConsts.LUA_NOREF;
+        thread.close();
+        main.unRef(ref);
+    }
+
+    /**
+     * Sets how many finished threads are kept for reuse, 64 by default
+     */
+    public void setThreadPoolSize(int size) {
+        ArrayDeque<Lua> dropped = new ArrayDeque<>();
+        synchronized (threadPool) {
+            main.threadPoolSize = Math.max(0, size);
+            while (threadPool.size() > main.threadPoolSize) {
+                dropped.add(threadPool.pollFirst());
+            }
+        }
+        for (Lua thread : dropped) {
+            discardThread(thread);
+        }
+    }
+
+    /**
+     * @return number of threads created by {@link #acquireThread()}
+     */
+    public long getThreadCreatedCount() {
+        synchronized (threadPool) {
+            return main.threadsCreated;
+        }
+    }
+
+    /**
+     * @return number of threads reused by {@link #acquireThread()}
+     */
+    public long getThreadReusedCount() {
+        synchronized (threadPool) {
+            return main.threadsReused;
+        }
+    }
+
+    /**
+     * @return number of finished threads waiting for reuse
+     */
+    public int getPooledThreadCount() {
+        synchronized (threadPool) {
+            return threadPool.size();
+        }
+    }
 
     // LuaStack API
     public int getTop() {
@@ -584,14 +1014,14 @@ public class Lua {
     }
 
     public void checkStack(int extra) throws LuaException {
-        recycleReferences();
+        references.drain();
         if (C.lua_checkstack(L, extra) == 0) {
             throw new LuaException(LuaException.LuaError.MEMORY, "No more stack space available");
         }
     }
 
     public void checkStack(int extra, String msg) {
-        recycleReferences();
+        references.drain();
         C.luaL_checkstack(L, extra, msg);
     }
 
@@ -602,11 +1032,46 @@ public class Lua {
 
     public void xMove(@NonNull Lua to, int n) throws LuaException {
         to.checkStack(n);
-        C.lua_xmove(L, to.L, n);
+        if (to.getMainState() == getMainState()) {
+            C.lua_xmove(L, to.L, n);
+            return;
+        }
+        // lua_xmove only works between threads of the same state, other states get copies
+        for (int i = -n; i < 0; i++) {
+            copyTo(to, i);
+        }
+        C.lua_pop(L, n);
     }
 
-    public void copyTo(@NonNull Lua to) {
-        C.luaJ_copy(this.L, to.L);
+    public void copyTo(@NonNull Lua to) throws LuaException {
+        copyTo(to, -1);
+    }
+
+    /**
+     * Pushes onto {@code to} a deep copy of the value at index. Tables keep their shared
+     * references and cycles, Lua functions are reloaded from their bytecode with copied upvalues,
+     * and Java objects get a new reference to the same instance.
+     */
+    public int copyTo(@NonNull Lua to, int index) throws LuaException {
+        to.checkStack(1);
+        if (C.luaJ_copy(L, to.L, index) != 0) {
+            throw new LuaException("Cannot copy a " + typeName(index) + " to another Lua state");
+        }
+        return 1;
+    }
+
+    /**
+     * Pushes an immutable copy of the table at index, which can be copied to other states without
+     * duplicating its content. Only nil, booleans, numbers, strings and tables can be shared.
+     */
+    public int share(int index) throws LuaException {
+        checkStack(2);
+        if (C.luaJ_share(L, index) == 0) {
+            String message = toString(-1);
+            pop(1);
+            throw new LuaException(message);
+        }
+        return 1;
     }
 
     public String dumpStack() {
@@ -834,6 +1299,7 @@ public class Lua {
      */
     public void pairs(int tableIndex, LuaIterator.Pairs iterator) throws LuaException {
         tableIndex = getAbsoluteIndex(tableIndex);
+        materializeView(tableIndex);
         pushNil();
         while (next(tableIndex)) {
             if (iterator.iterate(this)) {
@@ -1125,12 +1591,12 @@ public class Lua {
 
     // LuaStatues
     public void gc() {
-        recycleReferences();
+        references.drainAll();
         C.luaJ_gc(L);
     }
 
     public void gc(int what, int data) {
-        recycleReferences();
+        references.drainAll();
         C.lua_gc(L, what, data);
     }
 
@@ -1494,8 +1960,17 @@ public class Lua {
     }
 
     public Object toJavaArray(int index, Class<?> clazz) throws LuaException {
+        materializeView(index);
         int length = rawLength(index);
         Object array = Array.newInstance(clazz, length);
+        int kind = getPrimitiveArrayKind(clazz);
+        if (kind != 0 && isTable(index)) {
+            checkStack(1);
+            // non-zero if an element is not a number, which the generic conversion below handles
+            if (C.luaJ_toprimitivearray(L, index, array, kind) == 0) {
+                return array;
+            }
+        }
         ipairs(index, (L, value) -> {
             int javaIndex = value - 1;
             Object element = toJavaObject(-1, clazz);
@@ -1615,13 +2090,67 @@ public class Lua {
         return LuaProxy.newInstance(this, index, interfaces, degree).toProxy();
     }
 
+    /**
+     * Makes table proxies created from now on look up their functions once
+     *
+     * <p>
+     * When enabled, a table converted to an interface resolves the function of every interface
+     * method at creation and calls it through its reference afterwards. Fields assigned to the
+     * table later are not seen by the proxy.
+     * </p>
+     *
+     * @param resolve true to pre-resolve table proxies
+     */
+    public void setResolveProxies(boolean resolve) {
+        main.resolveProxies = resolve;
+    }
+
+    public boolean isResolveProxies() {
+        return main.resolveProxies;
+    }
+
+    /**
+     * Makes void methods of the proxies of this state return without waiting for the state
+     *
+     * <p>
+     * A call made from another thread is queued and run later by the executor, which has to run its
+     * tasks on the owning thread, e.g. a {@code Handler} of its {@code Looper}. Calls made on the
+     * owning thread itself still run synchronously, in order. Errors go to the {@link LuaHandler}.
+     * Methods returning a value still block until the state is free.
+     * Calls still waiting in the previous queue are dropped.
+     * </p>
+     *
+     * @param executor runs queued calls on the owning thread, null to call proxies synchronously
+     * @param coalesce true to merge repeated calls of a proxy method that are still waiting, keeping the latest arguments
+     * @param owner    the thread owning this state, on which the executor runs its tasks
+     */
+    public void setProxyExecutor(@Nullable Executor executor, boolean coalesce, @NonNull Thread owner) {
+        LuaProxyQueue queue = main.proxyQueue;
+        if (queue != null) queue.close();
+        main.proxyQueue = executor == null ? null : new LuaProxyQueue(executor, coalesce, owner);
+    }
+
+    /**
+     * Same as {@link #setProxyExecutor(Executor, boolean, Thread)}, owned by the calling thread
+     */
+    public void setProxyExecutor(@Nullable Executor executor, boolean coalesce) {
+        setProxyExecutor(executor, coalesce, Thread.currentThread());
+    }
+
+    /**
+     * @return the queue of asynchronous proxy calls and its metrics, null if not enabled
+     */
+    public @Nullable LuaProxyQueue getProxyQueue() {
+        return main.proxyQueue;
+    }
+
     public void setExternalLoader(ExternalLoader loader) {
-        this.loader = loader;
+        main.loader = loader;
     }
 
     public int loadExternal(String module) throws Exception {
-        synchronized (this) {
-            ExternalLoader loader = this.loader;
+        synchronized (main) {
+            ExternalLoader loader = main.loader;
             if (loader != null) {
                 return loader.load(this, module);
             }
@@ -1630,7 +2159,7 @@ public class Lua {
     }
 
     public Lua getMainState() {
-        return this;
+        return main;
     }
 
     public long getPointer() {
@@ -1758,7 +2287,11 @@ public class Lua {
     }
 
     public int refCopyTo(@NonNull Lua to, int ref) throws LuaException {
-        C.luaJ_refCopyTo(L, to.L, ref);
+        to.checkStack(1);
+        checkStack(1);
+        if (C.luaJ_refCopyTo(L, to.L, ref) != 0) {
+            throw new LuaException("Cannot copy the reference to another Lua state");
+        }
         return 1;
     }
 
@@ -1774,28 +2307,64 @@ public class Lua {
         return LuaNumber.from(this, number);
     }
 
-    public LuaString from(String str) {
+    public LuaString from(String str) throws LuaException {
         return LuaString.from(this, str);
     }
 
-    public LuaString from(Buffer buffer) {
+    public LuaString from(byte[] bytes) throws LuaException {
+        return LuaString.from(this, bytes);
+    }
+
+    public LuaString from(Buffer buffer) throws LuaException {
         return LuaString.from(this, buffer);
     }
 
     public void registerReference(@NonNull LuaReferable referable) {
-        recordedReferences.putIfAbsent(referable.getRef(), new LuaReference<>(referable, recyclableReferences));
+        LuaScope current = main.scope;
+        if (current != null && referable.getRef() > 0) {
+            current.add(referable.getRef());
+        } else {
+            references.register(referable);
+        }
     }
 
     /**
-     * Do {@link #unRef(int)} on all references in {@link #recyclableReferences}
+     * Releases the ref of the referable now instead of waiting for it to be garbage collected
      */
-    private void recycleReferences() {
-        LuaReference<?> ref = (LuaReference<?>) recyclableReferences.poll();
-        while (ref != null) {
-            recordedReferences.remove(ref.getReference());
-            unRef(ref.getReference());
-            ref = (LuaReference<?>) recyclableReferences.poll();
+    public void releaseReference(@NonNull LuaReferable referable) {
+        for (LuaScope current = main.scope; current != null; current = current.getParent()) {
+            if (current.remove(referable.getRef())) {
+                main.unRef(referable.getRef());
+                return;
+            }
         }
+        references.release(referable);
+    }
+
+    /**
+     * Opens a scope, releasing the refs of all values obtained in it at once when closed
+     *
+     * @return the scope, to be closed with try-with-resources
+     * @see LuaScope
+     */
+    public LuaScope scope() {
+        LuaScope created = new LuaScope(main, main.scope);
+        main.scope = created;
+        return created;
+    }
+
+    /**
+     * @return the innermost open scope, or null if values are released by garbage collection
+     */
+    public LuaScope getScope() {
+        return main.scope;
+    }
+
+    /**
+     * @return the manager releasing the refs of collected values, also exposing ref counters
+     */
+    public LuaReferenceManager getReferenceManager() {
+        return references;
     }
 
     // Lua Value
@@ -2175,6 +2744,19 @@ public class Lua {
          * All objects, including {@link Integer}, for example, are pushed as either
          * Java objects (with {@link Lua#pushJavaObject(Object)})
          */
-        NONE
+        NONE,
+        /**
+         * Same as {@link #FULL}, except that {@link Map} and {@link java.util.List} / {@link Collection}
+         * are pushed as view tables, whose entries are converted (lazily, too) on first access
+         * and then cached in Lua.
+         *
+         * <p>
+         * Reading, assigning and {@code ipairs} only convert the entries they touch. {@code pairs},
+         * {@code #} on maps and raw accesses from Java convert all remaining entries and turn the view
+         * into the plain table {@link #FULL} would have pushed. {@code #} on lists needs {@code __len}
+         * support for tables (LuaJIT built with Lua 5.2 compatibility).
+         * </p>
+         */
+        LAZY
     }
 }
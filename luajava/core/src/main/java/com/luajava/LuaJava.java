@@ -29,18 +29,27 @@ import com.luajava.value.referable.LuaTable;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.nio.Buffer;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
 
 public class LuaJava {
-    public static int bindClass(long ptr, String name) throws ClassNotFoundException, LuaException {
-        Lua L = Jua.get(ptr);
+    public static int bindClass(Lua L, String name) throws ClassNotFoundException, LuaException {
         return L.push(ClassUtils.forName(name));
     }
 
-    public static int bindMethod(long ptr, Object object, String name, Class<?>[] paramTypes) throws LuaException, NoSuchMethodException {
-        Lua L = Jua.get(ptr);
+    /**
+     * Like {@link #bindClass(Lua, String)}, but pushes nothing instead of throwing for unknown classes
+     *
+     * @return 1 if the class was pushed, 0 if it does not exist
+     */
+    public static int findClass(Lua L, String name) throws LuaException {
+        Class<?> clazz = ClassUtils.findClass(name);
+        return clazz == null ? 0 : L.push(clazz);
+    }
+
+    public static int bindMethod(Lua L, Object object, String name, Class<?>[] paramTypes) throws LuaException, NoSuchMethodException {
         Class<?> clazz;
         Class<?> objectClass = object.getClass();
         if (objectClass == Class.class) {
@@ -73,27 +82,23 @@ public class LuaJava {
         }
     }
 
-    public static int toJavaObject(long ptr, Class<?> clazz) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int toJavaObject(Lua L, Class<?> clazz) throws LuaException {
         clazz = clazz == null ? Object.class : clazz;
         return L.push(L.toJavaObject(1, clazz), clazz);
     }
 
-    public static int toJavaArray(long ptr, Class<?> clazz) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int toJavaArray(Lua L, Class<?> clazz) throws LuaException {
         clazz = clazz == null ? Object.class : clazz;
         return L.push(L.toJavaArray(1, clazz), clazz);
     }
 
-    public static int toJavaMap(long ptr, Class<?> keyClazz, Class<?> valueClazz) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int toJavaMap(Lua L, Class<?> keyClazz, Class<?> valueClazz) throws LuaException {
         keyClazz = keyClazz == null ? Object.class : keyClazz;
         valueClazz = valueClazz == null ? Object.class : valueClazz;
         return L.push(L.toJavaMap(1, keyClazz, valueClazz));
     }
 
-    public static int asTable(long ptr, Object object) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int asTable(Lua L, Object object) throws LuaException {
         Class<?> clazz = object.getClass();
         if (clazz.isArray()) {
             return L.pushArray(object);
@@ -107,17 +112,30 @@ public class LuaJava {
         throw new LuaException("cannot convert " + object + " (" + clazz.getName() + ") as table");
     }
 
-    public static int createArray(long ptr, Class<?> clazz, int[] dims) throws LuaException {
-        Lua L = Jua.get(ptr);
+    /**
+     * @param dims the dimensions, or null to create a one dimension array from the table at index 2
+     */
+    public static int createArray(Lua L, Class<?> clazz, int[] dims) throws LuaException {
+        if (dims == null) {
+            return L.pushJavaObject(L.toJavaArray(2, clazz));
+        }
         return L.pushJavaObject(Array.newInstance(clazz, dims));
     }
 
-    public static int createProxy(long ptr, Class<?> clazz) throws LuaException {
-        Lua L = Jua.get(ptr);
+    public static int typedArray(Lua L, Object object, Class<?> clazz) throws LuaException {
+        if (object instanceof Buffer) {
+            return L.pushTypedArray((Buffer) object, clazz);
+        } else if (object.getClass().isArray()) {
+            return L.pushJavaObject(object);
+        }
+        throw new LuaException("cannot view " + object + " (" + object.getClass().getName() + ") as typed array");
+    }
+
+    public static int createProxy(Lua L, Class<?> clazz) throws LuaException {
         return L.push(L.createProxy(2, clazz, Lua.Conversion.SEMI));
     }
 
-    public static int unwrap(long ptr, Object object) throws LuaException {
-        return JuaAPI.unwrap(ptr, object);
+    public static int unwrap(Lua L, Object object) throws LuaException {
+        return JuaAPI.unwrap(L, object);
     }
 }
@@ -22,6 +22,7 @@
 
 package com.luajava;
 
+import java.lang.reflect.Method;
 import java.nio.Buffer;
 
 /**
@@ -58,7 +59,13 @@ public class LuaNatives {
 
     public native int luaJ_initloader(long ptr);
 
-    public native void luaJ_pushbuffer(long ptr, Object obj_buffer, int size);
+    public native void luaJ_setstate(long ptr, Object state);
+
+    public native void luaJ_pushbuffer(long ptr, Object obj_buffer, int offset, int size);
+
+    public native void luaJ_pushbytes(long ptr, byte[] bytes, int offset, int length);
+
+    public native byte[] luaJ_tobytes(long ptr, int index);
 
     public native void luaJ_pushobject(long ptr, Object obj);
 
@@ -72,6 +79,22 @@ public class LuaNatives {
 
     public native void luaJ_pusharray(long ptr, Object array);
 
+    public native int luaJ_pushprimitivearray(long ptr, Object array, int kind);
+
+    public native int luaJ_toprimitivearray(long ptr, int index, Object array, int kind);
+
+    public native int luaJ_pushtypedarray(long ptr, Object array, int kind);
+
+    public native int luaJ_pushtypedbuffer(long ptr, Object buffer, int kind, long byteLength);
+
+    public native long luaJ_getmethodid(Method method);
+
+    public native Object luaJ_invokemethod(long ptr, Object object, Class<?> clazz, long method, long kinds, int returnKind);
+
+    public native int luaJ_pushview(long ptr, Object view, int length);
+
+    public native int luaJ_materializeview(long ptr, int index);
+
     public native void luaJ_pushfunction(long ptr, Object func);
 
     public native void luaJ_pushcclosure(long ptr, Object func, int n);
@@ -90,13 +113,15 @@ public class LuaNatives {
 
     public native int luaJ_compare(long ptr, int index1, int index2, int opc);
 
-    public native long luaJ_newthread(long ptr, int lid);
+    public native long luaJ_newthread(long ptr);
 
     public native int luaJ_invokespecial(long ptr, Class<?> clazz, String method, String sig, Object obj, String params);
 
     public native void luaJ_gc(long ptr);
 
-    public native int luaJ_copy(long ptr, long ptr1);
+    public native int luaJ_copy(long ptr, long ptr1, int index);
+
+    public native int luaJ_share(long ptr, int index);
 
     public native int luaJ_xpcall(long ptr, int nargs, int nresults);
 
@@ -113,10 +138,14 @@ public class LuaNatives {
     // nexlua.h binding
     public native int luaJ_refsafe(long ptr, int idx);
 
+    public native int luaJ_snapshot(long ptr, int idx, int count, int[] types, double[] numbers, int[] refs);
+
     public native void luaJ_refGet(long ptr, int ref);
 
     public native void luaJ_unRef(long ptr, int ref);
 
+    public native void luaJ_unRefs(long ptr, int[] refs, int count);
+
     public native int luaJ_ref(long ptr);
 
     public native int luaJ_refType(long ptr, int ref);
@@ -133,7 +162,7 @@ public class LuaNatives {
 
     public native long luaJ_refGetPointer(long ptr, int ref);
 
-    public native void luaJ_refCopyTo(long ptr, long ptr1, int ref);
+    public native int luaJ_refCopyTo(long ptr, long ptr1, int ref);
 
     public native int luaJ_loadstringbuffer(long ptr, byte[] buff, long sz, String name);
 
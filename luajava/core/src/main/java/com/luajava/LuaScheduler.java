@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2025 JustLikeCheese
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.luajava;
+
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs Lua functions as coroutines that wait for Java asynchronous work without blocking a thread
+ *
+ * <p>
+ * {@link #install()} defines two globals: {@code async(f, ...)} starts {@code f(...)} as a coroutine,
+ * and {@code await(x)} suspends the calling coroutine until {@code x} completes, then returns its
+ * result or raises its error. {@code x} is either a {@link CompletionStage}, such as a
+ * {@code CompletableFuture} (from API 24), or a function called with a {@link Continuation}, to
+ * adapt callback based APIs. Suspended coroutines are only referenced by their pending completion, and are
+ * resumed by the executor, which has to run its tasks on the thread owning the state.
+ * </p>
+ *
+ * <p>
+ * Ready coroutines run in rounds: a round only resumes the coroutines that were ready when it
+ * started, and a coroutine calling {@code coroutine.yield()} goes to the back of the queue, so
+ * none of them can starve the others or the owning thread.
+ * </p>
+ */
+public final class LuaScheduler {
+    // yielded by await before the awaited value
+    private static final Object AWAIT = new Object();
+    private static final String AWAIT_SOURCE = "local AWAIT = ...\n"
+            + "local yield, error = coroutine.yield, error\n"
+            + "return function(value)\n"
+            + "    local ok, result = yield(AWAIT, value)\n"
+            + "    if not ok then error(result, 2) end\n"
+            + "    return result\n"
+            + "end\n";
+    private final Lua L;
+    private final Executor executor;
+    private final ArrayDeque<Task> ready = new ArrayDeque<>();
+    private final Runnable drain = this::drain;
+    private boolean scheduled, closed;
+    private int suspended;
+    private long spawned, completed;
+
+    /**
+     * @param L        the state running the coroutines
+     * @param executor runs tasks on the thread owning the state, e.g. a {@code Handler} of its {@code Looper}
+     */
+    public LuaScheduler(@NonNull Lua L, @NonNull Executor executor) {
+        this.L = L.getMainState();
+        this.executor = executor;
+    }
+
+    /**
+     * Defines the {@code async} and {@code await} globals
+     */
+    public void install() throws LuaException {
+        L.push(this::async);
+        L.setGlobal("async");
+        L.loadString(AWAIT_SOURCE);
+        L.push(AWAIT);
+        L.pCall(1, 1);
+        L.setGlobal("await");
+    }
+
+    private int async(Lua L) throws LuaException {
+        if (!L.isFunction(1)) {
+            throw new LuaException("bad argument #1 to 'async' (function expected)");
+        }
+        spawn(L, L.getTop() - 1);
+        return 0;
+    }
+
+    /**
+     * Starts the function below the nArgs values on top of the stack as a coroutine, popping them
+     *
+     * <p>
+     * The coroutine first runs in the next round of the scheduler, not before this call returns.
+     * </p>
+     */
+    public void spawn(@NonNull Lua from, int nArgs) throws LuaException {
+        Lua thread = from.acquireThread();
+        from.xMove(thread, nArgs + 1);
+        Task task = new Task(thread, nArgs);
+        synchronized (this) {
+            spawned++;
+        }
+        post(task);
+    }
+
+    private void post(Task task) {
+        synchronized (this) {
+            if (closed) return;
+            ready.addLast(task);
+            if (scheduled) return;
+            scheduled = true;
+        }
+        executor.execute(drain);
+    }
+
+    private void drain() {
+        int n;
+        synchronized (this) {
+            n = ready.size();
+        }
+        for (int i = 0; i < n; i++) {
+            Task task;
+            synchronized (this) {
+                task = closed ? null : ready.pollFirst();
+            }
+            if (task == null) break;
+            run(task);
+        }
+        synchronized (this) {
+            if (ready.isEmpty() || closed) {
+                scheduled = false;
+                return;
+            }
+        }
+        executor.execute(drain);
+    }
+
+    private void run(Task task) {
+        Lua T = task.thread;
+        // the same monitor as LuaProxy, callbacks from other threads wait for the coroutine
+        synchronized (L) {
+            boolean yielded;
+            try {
+                int nArgs = task.nArgs;
+                if (task.resumed) {
+                    // the values yielded last time are replaced with the results of await
+                    T.setTop(0);
+                    T.push(task.ok);
+                    T.push(task.value, Lua.Conversion.SEMI);
+                    task.value = null;
+                    nArgs = 2;
+                }
+                task.nArgs = 0;
+                task.resumed = false;
+                yielded = T.resume(nArgs);
+            } catch (Exception e) {
+                finish(task);
+                L.sendError(e);
+                return;
+            }
+            if (!yielded) {
+                finish(task);
+            } else if (T.getTop() >= 2 && T.isJavaObject(1) && T.toJavaObject(1) == AWAIT) {
+                suspend(task, T);
+            } else {
+                // a plain coroutine.yield() only gives way to the other coroutines
+                T.setTop(0);
+                post(task);
+            }
+        }
+    }
+
+    private void suspend(Task task, Lua T) {
+        synchronized (this) {
+            suspended++;
+            task.waiting = true;
+        }
+        Object value = T.isJavaObject(2) ? T.toJavaObject(2) : null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && value instanceof CompletionStage) {
+            T.setTop(0);
+            whenComplete(task, (CompletionStage<?>) value);
+        } else if (T.isFunction(2)) {
+            Continuation continuation = new Continuation(this, task);
+            int top = L.getTop();
+            try {
+                T.pushValue(2);
+                T.xMove(L, 1);
+                T.setTop(0);
+                L.push(continuation);
+                L.pCall(1, 0);
+            } catch (Exception e) {
+                continuation.fail(getMessage(e));
+            } finally {
+                L.setTop(top);
+            }
+        } else {
+            T.setTop(0);
+            complete(task, false, "bad argument #1 to 'await' (CompletionStage or function expected)");
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.N)
+    private void whenComplete(Task task, CompletionStage<?> stage) {
+        stage.whenComplete((result, error) -> {
+            if (error == null) {
+                complete(task, true, result);
+            } else {
+                complete(task, false, getMessage(error));
+            }
+        });
+    }
+
+    private void complete(Task task, boolean ok, @Nullable Object value) {
+        synchronized (this) {
+            if (!task.waiting) return;
+            task.waiting = false;
+            task.resumed = true;
+            task.ok = ok;
+            task.value = value;
+            suspended--;
+        }
+        post(task);
+    }
+
+    private void finish(Task task) {
+        // threads of coroutines that returned are reused by the next spawn
+        L.releaseThread(task.thread);
+        synchronized (this) {
+            completed++;
+        }
+    }
+
+    private static String getMessage(Throwable error) {
+        if (error instanceof ExecutionException && error.getCause() != null) {
+            error = error.getCause();
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof Exception ? LuaException.getFullMessage((Exception) error) : error.toString();
+    }
+
+    /**
+     * Stops resuming coroutines, must be called on the owning thread
+     *
+     * <p>
+     * Ready coroutines are released, and suspended ones are dropped when they complete.
+     * </p>
+     */
+    public void close() {
+        ArrayDeque<Task> tasks;
+        synchronized (this) {
+            closed = true;
+            tasks = new ArrayDeque<>(ready);
+            ready.clear();
+        }
+        synchronized (L) {
+            for (Task task : tasks) {
+                finish(task);
+            }
+        }
+    }
+
+    /**
+     * @return number of coroutines waiting to be resumed
+     */
+    public synchronized int getReadyCount() {
+        return ready.size();
+    }
+
+    /**
+     * @return number of coroutines waiting in await
+     */
+    public synchronized int getSuspendedCount() {
+        return suspended;
+    }
+
+    public synchronized long getSpawnedCount() {
+        return spawned;
+    }
+
+    public synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    private static final class Task {
+        final Lua thread;
+        int nArgs;
+        // waiting in await / completed and about to be resumed with ok, value
+        boolean waiting, resumed, ok;
+        Object value;
+
+        Task(Lua thread, int nArgs) {
+            this.thread = thread;
+            this.nArgs = nArgs;
+        }
+    }
+
+    /**
+     * Passed to the function given to {@code await}, resumes the coroutine once completed
+     *
+     * <p>
+     * It can be completed from any thread, only the first completion counts.
+     * </p>
+     */
+    public static final class Continuation {
+        private final LuaScheduler scheduler;
+        private final Task task;
+
+        private Continuation(LuaScheduler scheduler, Task task) {
+            this.scheduler = scheduler;
+            this.task = task;
+        }
+
+        /**
+         * Makes {@code await} return the value
+         */
+        public void resume(@Nullable Object value) {
+            scheduler.complete(task, true, value);
+        }
+
+        /**
+         * Makes {@code await} raise the error
+         */
+        public void fail(@Nullable Object error) {
+            scheduler.complete(task, false, error);
+        }
+    }
+}
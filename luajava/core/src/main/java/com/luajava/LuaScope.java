@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2025 JustLikeCheese
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.luajava;
+
+import com.luajava.cleaner.LuaReferable;
+import com.luajava.value.LuaValue;
+
+/**
+ * A region in which referable values share one ref pool released in bulk
+ *
+ * <p>
+ * While a scope is open, every {@link LuaValue} taking a registry ref (tables, functions,
+ * strings, userdata...) records its ref in the scope instead of registering a phantom
+ * reference for garbage collection. All of them are released with a single native call
+ * when the scope is closed:
+ * </p>
+ *
+ * <pre>{@code
+ * try (LuaScope s = L.scope()) {
+ *     LuaValue[] args = L.getAll();
+ *     ...
+ *     callbacks.add(s.keep(args[0])); // outlives the scope
+ * }
+ * }</pre>
+ *
+ * <p>
+ * Values obtained inside a scope must not be used after it is closed, unless passed
+ * to {@link #keep(LuaValue)}. Scopes nest and must be closed in reverse order of creation,
+ * on the thread that uses the Lua state.
+ * </p>
+ */
+public final class LuaScope implements AutoCloseable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Lua L;
+    private final LuaScope parent;
+    private int[] refs = new int[INITIAL_CAPACITY];
+    private int count;
+    // detached scopes keep their refs but no longer collect new values
+    private boolean closed, detached;
+
+    LuaScope(Lua L, LuaScope parent) {
+        this.L = L;
+        this.parent = parent;
+    }
+
+    LuaScope getParent() {
+        return parent;
+    }
+
+    void add(int ref) {
+        if (count == refs.length) {
+            int[] grown = new int[refs.length * 2];
+            System.arraycopy(refs, 0, grown, 0, count);
+            refs = grown;
+        }
+        refs[count++] = ref;
+    }
+
+    boolean remove(int ref) {
+        // recently created values are the most likely to be released or kept
+        for (int i = count - 1; i >= 0; i--) {
+            if (refs[i] == ref) {
+                refs[i] = refs[--count];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the value out of the scope, back to garbage collection based release
+     *
+     * @param value the value obtained in this scope
+     * @return the value
+     */
+    public <T extends LuaValue> T keep(T value) {
+        if (value instanceof LuaReferable && value.isRef()) {
+            LuaReferable referable = (LuaReferable) value;
+            if (remove(referable.getRef())) {
+                L.getReferenceManager().register(referable);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Stops collecting new values, which are released by garbage collection again, while keeping
+     * the refs already held until {@link #close()}
+     */
+    void detach() {
+        if (closed || detached) return;
+        if (L.scope != this) {
+            throw new IllegalStateException("Scopes must be closed in reverse order of creation");
+        }
+        detached = true;
+        L.scope = parent;
+    }
+
+    /**
+     * @return the number of refs currently held by the scope
+     */
+    public int size() {
+        return count;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Releases every ref of the scope
+     *
+     * @throws IllegalStateException if an inner scope is still open
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        detach();
+        closed = true;
+        L.getReferenceManager().release(refs, count);
+        count = 0;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2025 JustLikeCheese
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.luajava;
+
+import com.luajava.value.LuaType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The Java side of a table pushed with {@link Lua.Conversion#LAZY}
+ *
+ * <p>
+ * Looks up single entries for the view metamethods, converting Lua keys the way
+ * {@link Lua.Conversion#FULL} would have converted the Java keys.
+ * </p>
+ */
+final class LuaView {
+    private final List<?> list;
+    private final Map<?, ?> map;
+    // normalized key => original key, built on the first lookup that misses the direct candidates
+    private Map<Object, Object> keys;
+
+    private LuaView(List<?> list, Map<?, ?> map) {
+        this.list = list;
+        this.map = map;
+    }
+
+    static LuaView of(Collection<?> collection) {
+        if (collection instanceof List && collection instanceof RandomAccess) {
+            return new LuaView((List<?>) collection, null);
+        }
+        // indexing must not walk the collection on every access
+        return new LuaView(new ArrayList<>(collection), null);
+    }
+
+    static LuaView of(Map<?, ?> map) {
+        return new LuaView(null, map);
+    }
+
+    /**
+     * @return the length of list views, -1 for map views
+     */
+    int length() {
+        return list == null ? -1 : list.size();
+    }
+
+    /**
+     * Pushes the entry for the key at index 2
+     *
+     * @return 1 if an entry was pushed, 0 if there is none
+     */
+    int index(Lua L) throws LuaException {
+        LuaType type = L.type(2);
+        if (list != null) {
+            if (type != LuaType.NUMBER) return 0;
+            double number = L.toNumber(2);
+            int index = (int) number;
+            if (index != number || index < 1 || index > list.size()) return 0;
+            return L.push(list.get(index - 1), Lua.Conversion.LAZY);
+        }
+        Object key;
+        switch (type) {
+            case STRING:
+                key = L.toString(2);
+                break;
+            case NUMBER:
+                double number = L.toNumber(2);
+                if (containsKey(number)) return push(L, number);
+                if (number == (int) number && containsKey((int) number)) return push(L, (int) number);
+                if (number == (long) number && containsKey((long) number)) return push(L, (long) number);
+                key = number;
+                break;
+            case BOOLEAN:
+                key = L.toBoolean(2);
+                break;
+            default:
+                // other values are pushed as new objects, no Lua key can equal them
+                return 0;
+        }
+        if (containsKey(key)) return push(L, key);
+        Map<Object, Object> keys = getKeys();
+        if (!keys.containsKey(key)) return 0;
+        return push(L, keys.get(key));
+    }
+
+    /**
+     * Pushes a table holding every entry
+     */
+    int pushAll(Lua L) throws LuaException {
+        if (list != null) {
+            return L.pushCollection(list, Lua.Conversion.LAZY);
+        }
+        return L.pushMap(map, Lua.Conversion.LAZY);
+    }
+
+    private int push(Lua L, Object key) throws LuaException {
+        return L.push(map.get(key), Lua.Conversion.LAZY);
+    }
+
+    private boolean containsKey(Object key) {
+        try {
+            return map.containsKey(key);
+        } catch (ClassCastException | NullPointerException e) {
+            // sorted maps reject keys of other types
+            return false;
+        }
+    }
+
+    private Map<Object, Object> getKeys() {
+        if (keys == null) {
+            keys = new HashMap<>();
+            for (Object key : map.keySet()) {
+                Object normalized = normalize(key);
+                if (normalized != null) keys.put(normalized, key);
+            }
+        }
+        return keys;
+    }
+
+    // the Java value of the Lua key a FULL conversion pushes for the key
+    private static Object normalize(Object key) {
+        if (key instanceof String || key instanceof Boolean) return key;
+        if (key instanceof Number) return ((Number) key).doubleValue();
+        if (key instanceof Character) return (double) (Character) key;
+        return null;
+    }
+}
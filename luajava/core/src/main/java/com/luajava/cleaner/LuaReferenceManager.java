@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2025 JustLikeCheese
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.luajava.cleaner;
+
+import com.luajava.LuaNatives;
+
+import java.lang.ref.ReferenceQueue;
+
+/**
+ * Tracks the registry references held by the {@link LuaReferable}s of one Lua state
+ *
+ * <p>
+ * References are kept in an open-addressing table keyed by the plain {@code int} ref, so
+ * registering a value neither boxes nor allocates a map node. Referables collected by the
+ * Java GC are drained from the queue in bounded batches, and their refs are released in
+ * Lua with a single native call once {@link #DRAIN_BATCH} of them are pending (or on
+ * {@link #drainAll()}).
+ * </p>
+ *
+ * <p>
+ * Draining is triggered every {@link #DRAIN_INTERVAL} registrations, so the registry does not
+ * keep growing between explicit {@link #drain()} calls in allocation-heavy scripts.
+ * </p>
+ */
+public final class LuaReferenceManager {
+    public static final int DRAIN_BATCH = 64;
+    public static final int DRAIN_INTERVAL = 256;
+    private static final int EMPTY = 0;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final LuaNatives C;
+    private final long L;
+    private final ReferenceQueue<LuaReferable> queue = new ReferenceQueue<>();
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private LuaReference<?>[] values = new LuaReference<?>[INITIAL_CAPACITY];
+    private int size;
+    private final int[] pendingRefs = new int[DRAIN_BATCH];
+    private int registrations;
+    private volatile int pending;
+    private volatile long releasedCount;
+    private boolean closed;
+
+    public LuaReferenceManager(LuaNatives C, long L) {
+        this.C = C;
+        this.L = L;
+    }
+
+    /**
+     * Starts tracking the ref of the referable, to be released once it is garbage collected
+     *
+     * <p>
+     * Must be called on the thread that currently owns the Lua state, since it may release
+     * refs of previously collected values.
+     * </p>
+     */
+    public void register(LuaReferable referable) {
+        int ref = referable.getRef();
+        // LUA_REFNIL and LUA_NOREF hold nothing in the registry
+        if (ref <= EMPTY) return;
+        synchronized (this) {
+            if (closed) return;
+            put(ref, new LuaReference<>(referable, queue));
+            if (++registrations < DRAIN_INTERVAL) return;
+            registrations = 0;
+        }
+        drain(DRAIN_BATCH);
+    }
+
+    /**
+     * Stops tracking the ref of the referable and releases it right away
+     */
+    public void release(LuaReferable referable) {
+        int ref = referable.getRef();
+        synchronized (this) {
+            if (closed) return;
+            if (ref > EMPTY) remove(ref, null);
+            C.luaJ_unRef(L, ref);
+        }
+    }
+
+    /**
+     * Releases refs that were never tracked by this manager, such as the refs of a scope
+     *
+     * @param refs  the refs
+     * @param count the number of refs to release from the start of the array
+     */
+    public synchronized void release(int[] refs, int count) {
+        if (closed || count == 0) return;
+        C.luaJ_unRefs(L, refs, count);
+    }
+
+    /**
+     * Drains at most one batch of collected referables
+     */
+    public void drain() {
+        drain(DRAIN_BATCH);
+    }
+
+    /**
+     * Drains all collected referables and releases every pending ref
+     */
+    public synchronized void drainAll() {
+        while (drain(DRAIN_BATCH) == DRAIN_BATCH) ;
+        flush();
+    }
+
+    /**
+     * Takes at most {@code max} collected referables from the queue
+     *
+     * <p>
+     * Their refs become pending and are released together whenever a full batch is pending.
+     * </p>
+     *
+     * @param max the maximum number of queued references to process
+     * @return the number of references taken from the queue
+     */
+    public synchronized int drain(int max) {
+        if (closed) return 0;
+        int polled = 0;
+        LuaReference<?> reference;
+        while (polled < max && (reference = (LuaReference<?>) queue.poll()) != null) {
+            polled++;
+            int ref = reference.getReference();
+            // the ref may have been released by hand and handed out again since
+            if (remove(ref, reference)) {
+                pendingRefs[pending++] = ref;
+                if (pending == DRAIN_BATCH) flush();
+            }
+        }
+        return polled;
+    }
+
+    private void flush() {
+        int count = pending;
+        if (count == 0) return;
+        C.luaJ_unRefs(L, pendingRefs, count);
+        releasedCount += count;
+        pending = 0;
+    }
+
+    /**
+     * Forgets every tracked ref without releasing it, used when the state is closed
+     */
+    public synchronized void close() {
+        closed = true;
+        keys = new int[0];
+        values = new LuaReference<?>[0];
+        size = 0;
+    }
+
+    /**
+     * @return the number of refs currently tracked
+     */
+    public synchronized int getLiveCount() {
+        return size;
+    }
+
+    /**
+     * @return the number of refs of collected referables not yet released in Lua
+     */
+    public int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * @return the number of refs released after garbage collection so far
+     */
+    public long getReleasedCount() {
+        return releasedCount;
+    }
+
+    private static int hash(int ref) {
+        int h = ref * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void put(int ref, LuaReference<?> reference) {
+        if ((size + 1) * 4 > keys.length * 3) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = hash(ref) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == ref) {
+                values[i] = reference;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = ref;
+        values[i] = reference;
+        size++;
+    }
+
+    // removes the entry if it holds the expected reference, or unconditionally when expected is null
+    private boolean remove(int ref, LuaReference<?> expected) {
+        int mask = keys.length - 1;
+        if (mask < 0) return false;
+        int i = hash(ref) & mask;
+        while (keys[i] != ref) {
+            if (keys[i] == EMPTY) return false;
+            i = (i + 1) & mask;
+        }
+        if (expected != null && values[i] != expected) return false;
+        // backward shift deletion keeps probe chains intact without tombstones
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY) break;
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        values[i] = null;
+        size--;
+        return true;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        LuaReference<?>[] oldValues = values;
+        keys = new int[capacity];
+        values = new LuaReference<?>[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -24,6 +24,7 @@ package com.luajava.util;
 
 import androidx.annotation.Nullable;
 
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -34,12 +35,19 @@ import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class ClassUtils {
     private static final Map<Class<?>, Class<?>> PRIMITIVE_WRAPPER_TYPE_MAP = new IdentityHashMap<>(9);
     private static final Map<String, Class<?>> PRIMITIVE_TYPE_MAP = new HashMap<>(9);
     private final static Set<String> OBJECT_DEFAULT_METHODS;
     private static final Method METHOD_IS_DEFAULT;
+    // class name => Class, or NOT_FOUND for names that failed to resolve
+    private static final Map<String, Object> CLASS_CACHE = new ConcurrentHashMap<>();
+    private static final Object NOT_FOUND = new Object();
+    // class => public member classes by simple name
+    private static final Map<Class<?>, Map<String, Class<?>>> INNER_CLASSES = new ConcurrentHashMap<>();
+    private static final Map<String, Class<?>> UNLISTABLE = new HashMap<>(0);
 
     static {
         // Primitives wrapper types
@@ -135,11 +143,65 @@ public abstract class ClassUtils {
     }
 
     public static Class<?> forName(String name) throws ClassNotFoundException {
-        Class<?> primitiveType = getPrimitiveType(name);
-        if (primitiveType != null) {
-            return primitiveType;
+        Class<?> clazz = findClass(name);
+        if (clazz == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return clazz;
+    }
+
+    /**
+     * Resolves a class by name, caching both hits and misses
+     *
+     * <p>
+     * Only the first lookup of an unknown name pays for the {@link ClassNotFoundException}
+     * thrown by {@link Class#forName(String)}. Classes listed by {@link #loadClassList(Iterable)}
+     * are already cached. A {@link LinkageError} raised while loading the class is not cached
+     * and propagates to the caller.
+     * </p>
+     *
+     * @return {@code null} if the class does not exist
+     */
+    public static @Nullable Class<?> findClass(String name) {
+        Object cached = CLASS_CACHE.get(name);
+        if (cached != null) {
+            return cached == NOT_FOUND ? null : (Class<?>) cached;
+        }
+        Class<?> clazz = getPrimitiveType(name);
+        if (clazz == null) {
+            try {
+                clazz = Class.forName(name);
+            } catch (ClassNotFoundException e) {
+                cached = NOT_FOUND;
+            }
+        }
+        CLASS_CACHE.put(name, cached == null ? clazz : cached);
+        return clazz;
+    }
+
+    /**
+     * Pre-warms the class cache with a list of commonly used classes
+     *
+     * <p>
+     * Each entry is a binary class name such as {@code android.widget.TextView}. Listed classes are
+     * loaded without being initialized and cached for {@link #findClass(String)}. The list is not
+     * authoritative: names missing from it, or failing to load here, are still resolved normally.
+     * Call it off the main thread, since it loads every listed class.
+     * </p>
+     *
+     * @param classNames the class names, blank entries and lines starting with {@code #} are ignored
+     */
+    public static void loadClassList(Iterable<String> classNames) {
+        ClassLoader loader = ClassUtils.class.getClassLoader();
+        for (String className : classNames) {
+            String name = className.trim();
+            if (name.isEmpty() || name.startsWith("#") || CLASS_CACHE.containsKey(name)) continue;
+            try {
+                CLASS_CACHE.put(name, Class.forName(name, false, loader));
+            } catch (ClassNotFoundException | LinkageError ignored) {
+                // stale entries are left to findClass
+            }
         }
-        return Class.forName(name);
     }
 
     private static byte getJNIShortSignature(Class<?> c) {
@@ -202,11 +264,25 @@ public abstract class ClassUtils {
     }
 
     public static Object callMethod(Object object, Method method, Object[] params) throws InvocationTargetException, IllegalAccessException {
-        if (!Modifier.isPublic(method.getModifiers()))
-            method.setAccessible(true);
+        // methods from MemberIndex are made accessible once, when the class is indexed
+        if (!method.isAccessible()) makeAccessible(method);
         return method.invoke(object, params);
     }
 
+    /**
+     * Disables access checks, so that public members of non-public classes can be called
+     *
+     * <p>
+     * The flag is kept by the member object, callers cache the member to pay for this once.
+     * </p>
+     */
+    public static void makeAccessible(AccessibleObject object) {
+        try {
+            object.setAccessible(true);
+        } catch (SecurityException ignored) {
+        }
+    }
+
     public static Object getField(Field field) {
         return getField(null, field);
     }
@@ -238,12 +314,44 @@ public abstract class ClassUtils {
         }
     }
 
-    public static Class<?> getInnerClass(Class<?> clazz, String name) {
+    /**
+     * Finds a public member class of the class or of its supertypes by simple name
+     *
+     * <p>
+     * The member classes of each class are listed once with {@link Class#getClasses()},
+     * so a miss costs a hash probe instead of a thrown {@link ClassNotFoundException}.
+     * Classes declared by the class itself hide inherited ones of the same name.
+     * </p>
+     */
+    public static @Nullable Class<?> getInnerClass(Class<?> clazz, String name) {
+        Map<String, Class<?>> innerClasses = INNER_CLASSES.get(clazz);
+        if (innerClasses == null) {
+            innerClasses = getInnerClasses(clazz);
+            INNER_CLASSES.put(clazz, innerClasses);
+        }
+        if (innerClasses == UNLISTABLE) {
+            return findClass(clazz.getName() + "$" + name);
+        }
+        return innerClasses.get(name);
+    }
+
+    private static Map<String, Class<?>> getInnerClasses(Class<?> clazz) {
+        Class<?>[] classes;
         try {
-            return Class.forName(clazz.getName() + "$" + name);
-        } catch (ClassNotFoundException e) {
-            return null;
+            classes = clazz.getClasses();
+        } catch (LinkageError e) {
+            // some member class refers to a type missing at runtime, resolve names one by one instead
+            return UNLISTABLE;
+        }
+        if (classes.length == 0) return Collections.emptyMap();
+        Map<String, Class<?>> innerClasses = new HashMap<>(classes.length * 2);
+        for (Class<?> innerClass : classes) {
+            String simpleName = innerClass.getSimpleName();
+            if (innerClass.getDeclaringClass() == clazz || !innerClasses.containsKey(simpleName)) {
+                innerClasses.put(simpleName, innerClass);
+            }
         }
+        return innerClasses;
     }
 
     /**
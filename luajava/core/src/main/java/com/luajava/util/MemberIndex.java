@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2025 JustLikeCheese
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.luajava.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the result of resolving a key against a class
+ *
+ * <p>
+ * Every class gets one index shared by all Lua states. A key is resolved by reflection
+ * the first time it is used and the result (including "not found") is kept, so later
+ * lookups of the same key only cost a single hash probe.
+ * </p>
+ */
+public final class MemberIndex {
+    public static final int NONE = 0;
+    public static final int FIELD = 1;
+    public static final int INNER_CLASS = 2;
+    public static final int METHOD = 3;
+    public static final int STATIC_METHOD = 4;
+    public static final int GETTER = 5;
+    public static final int STATIC_GETTER = 6;
+
+    public static final class Member {
+        public final int kind;
+        public final Field field;
+        public final Method method;
+        public final Class<?> innerClass;
+        public final MethodGroup group;
+
+        private Member(int kind, Field field, Method method, Class<?> innerClass, MethodGroup group) {
+            this.kind = kind;
+            this.field = field;
+            this.method = method;
+            this.innerClass = innerClass;
+            this.group = group;
+        }
+
+        private static Member of(Field field) {
+            return new Member(FIELD, field, null, null, null);
+        }
+
+        private static Member of(Class<?> innerClass) {
+            return new Member(INNER_CLASS, null, null, innerClass, null);
+        }
+
+        private static Member of(int kind, Method method) {
+            return new Member(kind, null, method, null, null);
+        }
+
+        private static Member of(int kind, MethodGroup group) {
+            return new Member(kind, null, null, null, group);
+        }
+    }
+
+    private static final Member NOT_FOUND = new Member(NONE, null, null, null, null);
+    private static final Map<Class<?>, MemberIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Class<?> clazz;
+    private final Map<String, Member> staticMembers = new ConcurrentHashMap<>();
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    private final Map<String, MethodGroup> staticMethodGroups = new ConcurrentHashMap<>();
+    private final Map<String, MethodGroup> methodGroups = new ConcurrentHashMap<>();
+    private volatile Method[] methods;
+
+    private MemberIndex(Class<?> clazz) {
+        this.clazz = clazz;
+    }
+
+    public static MemberIndex of(Class<?> clazz) {
+        MemberIndex index = INDEXES.get(clazz);
+        if (index == null) {
+            MemberIndex created = new MemberIndex(clazz);
+            index = INDEXES.putIfAbsent(clazz, created);
+            if (index == null) index = created;
+        }
+        return index;
+    }
+
+    public static void clear() {
+        INDEXES.clear();
+    }
+
+    public Class<?> getIndexedClass() {
+        return clazz;
+    }
+
+    /**
+     * Returns the public methods of the class, fetched and made accessible once
+     */
+    public Method[] getMethods() {
+        Method[] result = methods;
+        if (result == null) {
+            result = clazz.getMethods();
+            for (Method method : result) {
+                ClassUtils.makeAccessible(method);
+            }
+            methods = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the public methods named {@code name}
+     *
+     * @param name     the method name
+     * @param isStatic only collect static methods, as a call without receiver does
+     * @return the overloads, may be empty
+     */
+    public MethodGroup getMethodGroup(String name, boolean isStatic) {
+        Map<String, MethodGroup> groups = isStatic ? staticMethodGroups : methodGroups;
+        MethodGroup group = groups.get(name);
+        if (group == null) {
+            ArrayList<Method> overloads = new ArrayList<>();
+            for (Method method : getMethods()) {
+                if (isStatic && !Modifier.isStatic(method.getModifiers())) continue;
+                if (name.equals(method.getName())) overloads.add(method);
+            }
+            MethodGroup created = new MethodGroup(clazz, name, overloads.toArray(new Method[0]));
+            group = groups.putIfAbsent(name, created);
+            if (group == null) group = created;
+        }
+        return group;
+    }
+
+    /**
+     * Resolves {@code Class.name}
+     *
+     * @param name the key
+     * @return the member, its kind is {@link #NONE} if nothing matched
+     */
+    public Member getStatic(String name) {
+        Member member = staticMembers.get(name);
+        if (member == null) {
+            member = resolveStatic(name);
+            staticMembers.put(name, member);
+        }
+        return member;
+    }
+
+    /**
+     * Resolves {@code object.name}
+     *
+     * @param name the key
+     * @return the member, its kind is {@link #NONE} if nothing matched
+     */
+    public Member get(String name) {
+        Member member = members.get(name);
+        if (member == null) {
+            member = resolve(name);
+            members.put(name, member);
+        }
+        return member;
+    }
+
+    // Class.STATIC_FIELD > Class.InnerClass > Class.staticMethod > Class.getXxx > Class.getxXX
+    private Member resolveStatic(String name) {
+        Field field = ClassUtils.getPublicStaticField(clazz, name);
+        if (field != null) return Member.of(field);
+        Class<?> innerClass = ClassUtils.getInnerClass(clazz, name);
+        if (innerClass != null) return Member.of(innerClass);
+        String[] getterNames = getGetterNames(name);
+        Method getter1 = null;
+        Method getter2 = null;
+        for (Method method : getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                String methodName = method.getName();
+                if (name.equals(methodName)) {
+                    return Member.of(STATIC_METHOD, getMethodGroup(name, true));
+                } else if (getterNames != null && getter1 == null && method.getParameterTypes().length == 0) {
+                    if (getterNames[0].equals(methodName)) {
+                        getter1 = method;
+                    } else if (getter2 == null && getterNames[1].equals(methodName)) {
+                        getter2 = method;
+                    }
+                }
+            }
+        }
+        if (getter1 != null) return Member.of(STATIC_GETTER, getter1);
+        if (getter2 != null) return Member.of(STATIC_GETTER, getter2);
+        return NOT_FOUND;
+    }
+
+    // object.field > Class.InnerClass > object.method > Class.staticMethod > object.getXxx > object.getxXX > Class.getXxx > Class.getxXX
+    private Member resolve(String name) {
+        Field field = ClassUtils.getPublicField(clazz, name);
+        if (field != null) return Member.of(field);
+        Class<?> innerClass = ClassUtils.getInnerClass(clazz, name);
+        if (innerClass != null) return Member.of(innerClass);
+        String[] getterNames = getGetterNames(name);
+        Method getter1 = null;
+        Method getter2 = null;
+        Method staticGetter1 = null;
+        Method staticGetter2 = null;
+        boolean hasStaticMethod = false;
+        for (Method method : getMethods()) {
+            String methodName = method.getName();
+            if (!Modifier.isStatic(method.getModifiers())) { // instance method first
+                if (name.equals(methodName)) {
+                    return Member.of(METHOD, getMethodGroup(name, false));
+                } else if (getterNames != null && getter1 == null && method.getParameterTypes().length == 0) {
+                    if (getterNames[0].equals(methodName)) {
+                        getter1 = method;
+                    } else if (getter2 == null && getterNames[1].equals(methodName)) {
+                        getter2 = method;
+                    }
+                }
+            } else if (!hasStaticMethod) {
+                if (name.equals(methodName)) {
+                    hasStaticMethod = true;
+                } else if (getterNames != null && staticGetter1 == null && method.getParameterTypes().length == 0) {
+                    if (getterNames[0].equals(methodName)) {
+                        staticGetter1 = method;
+                    } else if (staticGetter2 == null && getterNames[1].equals(methodName)) {
+                        staticGetter2 = method;
+                    }
+                }
+            }
+        }
+        if (hasStaticMethod) return Member.of(STATIC_METHOD, getMethodGroup(name, true));
+        if (getter1 != null) return Member.of(GETTER, getter1);
+        if (getter2 != null) return Member.of(GETTER, getter2);
+        if (staticGetter1 != null) return Member.of(STATIC_GETTER, staticGetter1);
+        if (staticGetter2 != null) return Member.of(STATIC_GETTER, staticGetter2);
+        return NOT_FOUND;
+    }
+
+    // get Xxx, get xXX
+    private static String[] getGetterNames(String name) {
+        if (name.isEmpty()) return null;
+        char firstChar = name.charAt(0);
+        final String SUFFIX = name.substring(1);
+        final String PREFIX = "get";
+        if (Character.isLowerCase(firstChar)) {
+            return new String[]{PREFIX + Character.toUpperCase(firstChar) + SUFFIX, PREFIX + firstChar + SUFFIX};
+        } else {
+            return new String[]{PREFIX + firstChar + SUFFIX, PREFIX + Character.toLowerCase(firstChar) + SUFFIX};
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2025 JustLikeCheese
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.luajava.util;
+
+import com.luajava.Lua;
+
+import java.lang.reflect.Method;
+
+/**
+ * All overloads of one method name, with a small inline cache of resolved overloads
+ *
+ * <p>
+ * The cache maps an argument signature (one identity-comparable key per argument)
+ * to the overload picked for it. It keeps the most recently used signatures only,
+ * which is enough for the few argument shapes a call site usually sees.
+ * </p>
+ *
+ * <p>
+ * Overloads whose parameters are all primitives or {@link String} get a second cache keyed
+ * by a packed {@code long} of the Lua argument types, so that they can be matched without
+ * converting the arguments to {@code LuaValue}s first. Such overloads also keep their
+ * {@code jmethodID} and packed parameter kinds, to be called natively with typed JNI calls.
+ * </p>
+ */
+public final class MethodGroup {
+    /**
+     * Returned by {@link #findPrimitive(long)} for signatures resolved to an overload that does not
+     * only take primitives or strings
+     */
+    public static final int NOT_PRIMITIVE = -2;
+    // Must match JAVA_PRIMITIVE_* and JAVA_KIND_* in luajavacore.h
+    public static final int KIND_VOID = 0;
+    public static final int KIND_BYTE = 1;
+    public static final int KIND_SHORT = 2;
+    public static final int KIND_INT = 3;
+    public static final int KIND_LONG = 4;
+    public static final int KIND_FLOAT = 5;
+    public static final int KIND_DOUBLE = 6;
+    public static final int KIND_BOOLEAN = 7;
+    public static final int KIND_CHAR = 8;
+    public static final int KIND_OBJECT = 9;
+    private static final int CACHE_SIZE = 4;
+
+    private static final class Entry {
+        final Object[] signature;
+        final Method method;
+
+        Entry(Object[] signature, Method method) {
+            this.signature = signature;
+            this.method = method;
+        }
+    }
+
+    private final Class<?> clazz;
+    private final String name;
+    private final Method[] methods;
+    private final Class<?>[][] parameterTypes;
+    private volatile Entry[] entries = new Entry[0];
+    // signature0, index0, signature1, index1, ...
+    private volatile long[] primitiveEntries = new long[0];
+    // bit n is set if an overload with n parameters only takes primitives or strings
+    private final long primitiveArities;
+    // per overload taking only primitives or strings: jmethodID, parameter kinds packed like signatures, return kind
+    private final long[] methodIds;
+    private final long[] parameterKinds;
+    private final int[] returnKinds;
+
+    public MethodGroup(Class<?> clazz, String name, Method[] methods) {
+        this.clazz = clazz;
+        this.name = name;
+        this.methods = methods;
+        this.parameterTypes = new Class<?>[methods.length][];
+        this.methodIds = new long[methods.length];
+        this.parameterKinds = new long[methods.length];
+        this.returnKinds = new int[methods.length];
+        long arities = 0;
+        for (int i = 0; i < methods.length; i++) {
+            parameterTypes[i] = methods[i].getParameterTypes();
+            if (isPrimitive(i)) {
+                arities |= 1L << parameterTypes[i].length;
+                long kinds = (long) parameterTypes[i].length << 60;
+                for (int j = 0; j < parameterTypes[i].length; j++) {
+                    kinds |= (long) getKind(parameterTypes[i][j]) << (j * 4);
+                }
+                parameterKinds[i] = kinds;
+                returnKinds[i] = getKind(methods[i].getReturnType());
+                methodIds[i] = Lua.getNative().luaJ_getmethodid(methods[i]);
+            }
+        }
+        this.primitiveArities = arities;
+    }
+
+    /**
+     * @return false if no overload taking count arguments can be matched by a primitive signature
+     */
+    public boolean hasPrimitiveOverload(int count) {
+        return count < 64 && (primitiveArities & (1L << count)) != 0;
+    }
+
+    public Class<?> getDeclaringClass() {
+        return clazz;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Method[] getMethods() {
+        return methods;
+    }
+
+    /**
+     * Returns the parameter types of {@code getMethods()[index]} without copying them
+     */
+    public Class<?>[] getParameterTypes(int index) {
+        return parameterTypes[index];
+    }
+
+    /**
+     * Returns the overload previously recorded for the signature
+     *
+     * @param signature the argument signature
+     * @return {@code null} if not cached
+     */
+    public Method find(Object[] signature) {
+        for (Entry entry : entries) {
+            if (matches(entry.signature, signature)) {
+                return entry.method;
+            }
+        }
+        return null;
+    }
+
+    public void record(Object[] signature, Method method) {
+        Entry[] current = entries;
+        int length = Math.min(current.length + 1, CACHE_SIZE);
+        Entry[] updated = new Entry[length];
+        updated[0] = new Entry(signature, method);
+        System.arraycopy(current, 0, updated, 1, length - 1);
+        entries = updated;
+    }
+
+    /**
+     * Returns the index of the overload recorded for the packed primitive signature
+     *
+     * @param signature the packed argument types
+     * @return {@code -1} if not cached, {@link #NOT_PRIMITIVE} if the signature needs the generic path
+     */
+    public int findPrimitive(long signature) {
+        long[] entries = primitiveEntries;
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] == signature) {
+                return (int) entries[i + 1];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records the overload for a packed primitive signature
+     *
+     * <p>
+     * Ignored unless the method belongs to this group. Overloads that do not only take primitives
+     * or strings are recorded as {@link #NOT_PRIMITIVE}, so that later calls skip the lookup.
+     * </p>
+     */
+    public synchronized void recordPrimitive(long signature, Method method) {
+        int index = -1;
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i].equals(method)) {
+                index = i;
+                break;
+            }
+        }
+        if (index == -1) return;
+        if (!isPrimitive(index)) index = NOT_PRIMITIVE;
+        long[] current = primitiveEntries;
+        int length = Math.min(current.length + 2, CACHE_SIZE * 2);
+        long[] updated = new long[length];
+        updated[0] = signature;
+        updated[1] = index;
+        System.arraycopy(current, 0, updated, 2, length - 2);
+        primitiveEntries = updated;
+    }
+
+    /**
+     * Returns the {@code jmethodID} of {@code getMethods()[index]}, only set for overloads matched by primitive signatures
+     */
+    public long getMethodId(int index) {
+        return methodIds[index];
+    }
+
+    /**
+     * Returns the {@code KIND_*} of each parameter, packed four bits each with the count in the top four bits
+     */
+    public long getParameterKinds(int index) {
+        return parameterKinds[index];
+    }
+
+    public int getReturnKind(int index) {
+        return returnKinds[index];
+    }
+
+    private static int getKind(Class<?> type) {
+        if (type == void.class) return KIND_VOID;
+        if (type == int.class) return KIND_INT;
+        if (type == long.class) return KIND_LONG;
+        if (type == double.class) return KIND_DOUBLE;
+        if (type == boolean.class) return KIND_BOOLEAN;
+        if (type == float.class) return KIND_FLOAT;
+        if (type == char.class) return KIND_CHAR;
+        if (type == short.class) return KIND_SHORT;
+        if (type == byte.class) return KIND_BYTE;
+        return KIND_OBJECT;
+    }
+
+    // Taking at most 15 primitives or strings, the most a packed signature holds
+    private boolean isPrimitive(int index) {
+        if (methods[index].isVarArgs() || parameterTypes[index].length > 15) return false;
+        for (Class<?> type : parameterTypes[index]) {
+            if (!type.isPrimitive() && type != String.class) return false;
+        }
+        return true;
+    }
+
+    private static boolean matches(Object[] a, Object[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) return false;
+        }
+        return true;
+    }
+}
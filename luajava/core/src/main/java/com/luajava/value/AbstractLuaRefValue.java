@@ -49,7 +49,7 @@ public abstract class AbstractLuaRefValue extends AbstractLuaValue implements Lu
 
     @Override
     public int push(Lua L) throws LuaException {
-        if (this.L != L) {
+        if (this.L != L.getMainState()) {
             throw new LuaException("Cannot push a reference to a different Lua instance");
         }
         L.checkStack(1);
@@ -58,7 +58,8 @@ public abstract class AbstractLuaRefValue extends AbstractLuaValue implements Lu
 
     @Override
     public int copyTo(Lua L) throws LuaException {
-        return L.refCopyTo(L, ref);
+        if (this.L == L.getMainState()) return push(L);
+        return this.L.refCopyTo(L, ref);
     }
 
     // RefValue Performance Optimization
@@ -104,6 +105,6 @@ public abstract class AbstractLuaRefValue extends AbstractLuaValue implements Lu
 
     @Override
     public void unRef() {
-        L.unRef(ref);
+        L.releaseReference(this);
     }
 }
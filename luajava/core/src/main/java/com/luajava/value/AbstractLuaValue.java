@@ -39,7 +39,6 @@ import com.luajava.value.referable.LuaThread;
 import com.luajava.value.referable.LuaUnknown;
 import com.luajava.value.referable.LuaUserdata;
 
-import java.lang.reflect.Array;
 import java.nio.Buffer;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -52,7 +51,8 @@ public abstract class AbstractLuaValue implements LuaValue {
     protected final LuaType TYPE;
 
     public AbstractLuaValue(Lua L, LuaType type) {
-        this.L = L;
+        // values may outlive the coroutine they are created in
+        this.L = L.getMainState();
         this.TYPE = type;
     }
 
@@ -1007,16 +1007,11 @@ public abstract class AbstractLuaValue implements LuaValue {
     @Override
     public Object toJavaArray(Class<?> clazz) throws LuaException {
         push();
-        int length = L.rawLength(-1);
-        Object array = Array.newInstance(clazz, length);
-        L.ipairs(-1, (L, index) -> {
-            int arrayIndex = index - 1;
-            Object element = L.toJavaObject(-1, clazz);
-            Array.set(array, arrayIndex, element);
-            return false;
-        });
-        L.pop(1);
-        return array;
+        try {
+            return L.toJavaArray(-1, clazz);
+        } finally {
+            L.pop(1);
+        }
     }
 
     @Override
@@ -32,6 +32,8 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Class that implements the InvocationHandler interface.
@@ -47,19 +49,60 @@ public final class LuaProxy implements InvocationHandler {
     private final LuaValue value;
     private final Lua.Conversion degree;
     private final Class<?> interfaces;
+    // method name => function, only set when the table functions are resolved up front
+    private final Map<String, LuaValue> functions;
 
     private LuaProxy(Lua L, LuaFunction value, Lua.Conversion degree, Class<?> interfaces) {
-        this.L = L;
+        // proxies may be called after the coroutine creating them is gone
+        this.L = L.getMainState();
         this.value = value;
         this.degree = degree;
         this.interfaces = interfaces;
+        this.functions = null;
     }
 
-    private LuaProxy(Lua L, LuaTable value, Lua.Conversion degree, Class<?> interfaces) {
-        this.L = L;
+    private LuaProxy(Lua L, LuaTable value, Lua.Conversion degree, Class<?> interfaces) throws LuaException {
+        this.L = L.getMainState();
         this.value = value;
         this.degree = degree;
         this.interfaces = interfaces;
+        this.functions = L.isResolveProxies() ? resolveFunctions(L, value, interfaces) : null;
+    }
+
+    // Object methods go through the proxy too, but are not returned by Class.getMethods() of an interface
+    private static final String[] OBJECT_METHODS = {"toString", "equals", "hashCode"};
+
+    /**
+     * Looks up the function of every interface method, and of the Object methods, in the table
+     *
+     * <p>
+     * Methods without a function are left out, so that they still go to the default method fallback.
+     * </p>
+     */
+    private static Map<String, LuaValue> resolveFunctions(Lua L, LuaTable table, Class<?> interfaces) throws LuaException {
+        Map<String, LuaValue> functions = new HashMap<>();
+        int top = L.getTop();
+        try {
+            L.push(table);
+            for (Method method : interfaces.getMethods()) {
+                resolveFunction(L, functions, method.getName());
+            }
+            for (String name : OBJECT_METHODS) {
+                resolveFunction(L, functions, name);
+            }
+        } finally {
+            L.setTop(top);
+        }
+        return functions;
+    }
+
+    private static void resolveFunction(Lua L, Map<String, LuaValue> functions, String name) throws LuaException {
+        if (functions.containsKey(name)) return;
+        L.getField(-1, name);
+        if (!L.isNil(-1)) {
+            functions.put(name, L.get());
+        }
+        L.pop(1);
     }
 
     private final static String ERR_MESSAGE = "Unable to merge interfaces into a functional one. Class: %s";
@@ -85,21 +128,48 @@ public final class LuaProxy implements InvocationHandler {
         return new LuaProxy(value.L, value, degree, interfaces);
     }
 
-    public static LuaProxy newInstance(LuaTable value, Class<?> interfaces, Lua.Conversion degree) {
+    public static LuaProxy newInstance(LuaTable value, Class<?> interfaces, Lua.Conversion degree) throws LuaException {
         return new LuaProxy(value.L, value, degree, interfaces);
     }
 
     @Override
     public Object invoke(Object object, Method method, Object[] objects) throws Throwable {
+        LuaProxyQueue queue = L.getProxyQueue();
+        if (queue != null && method.getReturnType() == void.class && !queue.isOwnerThread()) {
+            queue.post(this, object, method, objects);
+            return null;
+        }
         synchronized (L.getMainState()) {
             return syncInvoke(object, method, objects);
         }
     }
 
+    // Runs a call from the queue on the thread owning the state
+    void dispatch(Object object, Method method, Object[] objects) {
+        synchronized (L.getMainState()) {
+            try {
+                syncInvoke(object, method, objects);
+            } catch (Exception e) {
+                L.sendError(e);
+            } catch (Throwable e) {
+                L.sendError(new LuaException(e.toString(), e));
+            }
+        }
+    }
+
     private Object syncInvoke(Object object, Method method, Object[] objects) throws Throwable {
         int top = L.getTop();
         Class<?> type = method.getReturnType();
         try {
+            if (functions != null) {
+                LuaValue function = functions.get(method.getName());
+                if (function == null) {
+                    return callDefaultMethod(object, method, objects);
+                }
+                L.push(function);
+                L.pCall(objects, degree, 1);
+                return L.get().toJavaObject(type);
+            }
             L.push(value);
             if (value.isTable()) {
                 L.getField(-1, method.getName());
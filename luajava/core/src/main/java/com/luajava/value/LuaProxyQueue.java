@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2025 JustLikeCheese
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.luajava.value;
+
+import androidx.annotation.NonNull;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Queue of proxy calls waiting for the thread that owns a Lua state
+ *
+ * <p>
+ * While {@link com.luajava.Lua#setProxyExecutor} is set, void methods of proxies called from other
+ * threads do not wait for the state: the calling thread only enqueues the call, and the executor runs
+ * it later on the owning thread. Calls made on the owning thread are not queued. With coalescing,
+ * a call to a proxy method that still has a call waiting replaces the arguments of the waiting
+ * one, so high-frequency callbacks only deliver their latest values.
+ * </p>
+ */
+public final class LuaProxyQueue {
+    private final Executor executor;
+    private final boolean coalesce;
+    private final Thread owner;
+    private final ArrayDeque<Call> calls = new ArrayDeque<>();
+    // waiting call => itself, keyed by proxy and method, only used when coalescing
+    private final HashMap<Call, Call> waiting = new HashMap<>();
+    private final Runnable drain = this::drain;
+    private boolean scheduled, closed;
+    // metrics
+    private long enqueued, dispatched, coalesced;
+    private int maxDepth;
+    private long totalLatency, maxLatency;
+
+    public LuaProxyQueue(@NonNull Executor executor, boolean coalesce, @NonNull Thread owner) {
+        this.executor = executor;
+        this.coalesce = coalesce;
+        this.owner = owner;
+    }
+
+    /**
+     * @return true if the calling thread owns the state, calls made on it run synchronously
+     */
+    public boolean isOwnerThread() {
+        return Thread.currentThread() == owner;
+    }
+
+    public boolean isCoalescing() {
+        return coalesce;
+    }
+
+    void post(LuaProxy proxy, Object object, Method method, Object[] args) {
+        Call call = new Call(proxy, object, method, args);
+        synchronized (this) {
+            if (closed) return;
+            if (coalesce) {
+                Call previous = waiting.get(call);
+                if (previous != null) {
+                    previous.args = args;
+                    coalesced++;
+                    return;
+                }
+                waiting.put(call, call);
+            }
+            calls.addLast(call);
+            enqueued++;
+            maxDepth = Math.max(maxDepth, calls.size());
+            if (scheduled) return;
+            scheduled = true;
+        }
+        executor.execute(drain);
+    }
+
+    private void drain() {
+        int n;
+        synchronized (this) {
+            n = calls.size();
+        }
+        // calls posted while draining wait for the next round, so the owning thread gets to run other work in between
+        for (int i = 0; i < n; i++) {
+            Call call;
+            synchronized (this) {
+                call = calls.pollFirst();
+                if (call == null) break;
+                if (coalesce) waiting.remove(call);
+                long latency = System.nanoTime() - call.time;
+                totalLatency += latency;
+                maxLatency = Math.max(maxLatency, latency);
+                dispatched++;
+            }
+            call.proxy.dispatch(call.object, call.method, call.args);
+        }
+        synchronized (this) {
+            if (calls.isEmpty() || closed) {
+                scheduled = false;
+                return;
+            }
+        }
+        executor.execute(drain);
+    }
+
+    /**
+     * Drops the waiting calls, called when the state is closed
+     */
+    public synchronized void close() {
+        closed = true;
+        calls.clear();
+        waiting.clear();
+    }
+
+    /**
+     * @return number of calls waiting to be dispatched
+     */
+    public synchronized int getDepth() {
+        return calls.size();
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public synchronized long getEnqueuedCount() {
+        return enqueued;
+    }
+
+    public synchronized long getDispatchedCount() {
+        return dispatched;
+    }
+
+    /**
+     * @return number of calls merged into a waiting call instead of being enqueued
+     */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /**
+     * @return mean time between enqueueing and dispatching a call, in nanoseconds
+     */
+    public synchronized long getAverageLatency() {
+        return dispatched == 0 ? 0 : totalLatency / dispatched;
+    }
+
+    public synchronized long getMaxLatency() {
+        return maxLatency;
+    }
+
+    public synchronized void resetStats() {
+        enqueued = dispatched = coalesced = 0;
+        maxDepth = calls.size();
+        totalLatency = maxLatency = 0;
+    }
+
+    private static final class Call {
+        final LuaProxy proxy;
+        final Object object;
+        final Method method;
+        final long time = System.nanoTime();
+        Object[] args;
+
+        Call(LuaProxy proxy, Object object, Method method, Object[] args) {
+            this.proxy = proxy;
+            this.object = object;
+            this.method = method;
+            this.args = args;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Call)) return false;
+            Call call = (Call) o;
+            return proxy == call.proxy && method.equals(call.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(proxy) * 31 + method.hashCode();
+        }
+    }
+}
@@ -33,10 +33,19 @@ import com.luajava.value.LuaValue;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * A referenced Lua string
+ *
+ * <p>
+ * The bytes stay in Lua: {@link #toBytes()} and {@link #toBuffer()} copy them once, and
+ * {@link #read(BufferReader)} reads them in place, none of them going through JNI modified UTF-8.
+ * The Java {@link String} is only decoded (as UTF-8) when {@link #toString()} is first called.
+ * </p>
+ */
 public class LuaString extends AbstractLuaRefValue {
     private String string;
-    private Buffer buffer;
 
     public LuaString(Lua L) {
         super(L, LuaType.STRING);
@@ -52,17 +61,25 @@ public class LuaString extends AbstractLuaRefValue {
 
     private LuaString(String string, Lua L) {
         super(L, LuaType.STRING);
+        this.string = string;
     }
 
     public static LuaString fromRef(Lua L, int ref) {
         return new LuaString(ref, L);
     }
 
-    public static LuaString from(Lua L, String string) {
+    public static LuaString from(Lua L, String string) throws LuaException {
+        L.push(string);
+        return new LuaString(string, L);
+    }
+
+    public static LuaString from(Lua L, byte[] bytes) throws LuaException {
+        L.pushBytes(bytes);
         return new LuaString(L);
     }
 
-    public static LuaString from(Lua L, Buffer buffer) {
+    public static LuaString from(Lua L, Buffer buffer) throws LuaException {
+        L.push(buffer);
         return new LuaString(L);
     }
 
@@ -70,7 +87,10 @@ public class LuaString extends AbstractLuaRefValue {
     @Override
     public String toString() {
         if (string != null) return string;
-        if (buffer != null) return string = buffer.toString();
+        try {
+            return string = read(view -> StandardCharsets.UTF_8.decode(view).toString());
+        } catch (LuaException ignored) {
+        }
         return super.toString();
     }
 
@@ -79,6 +99,16 @@ public class LuaString extends AbstractLuaRefValue {
         return toString();
     }
 
+    /**
+     * @return a copy of the bytes of the string
+     */
+    public byte[] toBytes() throws LuaException {
+        push();
+        byte[] bytes = L.toBytes(-1);
+        L.pop(1);
+        return bytes;
+    }
+
     @Override
     public long toInteger() throws LuaException {
         push();
@@ -95,11 +125,26 @@ public class LuaString extends AbstractLuaRefValue {
         return result;
     }
 
-    @Override
-    public Buffer toBuffer() throws LuaException {
-        if (buffer != null) return buffer;
-        if (string != null) return buffer = ByteBuffer.wrap(string.getBytes());
-        return buffer = super.toBuffer();
+    /**
+     * Passes a read-only view of the string bytes to reader without copying them
+     *
+     * <p>
+     * The string is kept on the stack while reader runs, the view must not be used after it returns.
+     * Use {@link #toBuffer()} or {@link #toBytes()} for a copy that can be kept.
+     * </p>
+     */
+    public <T> T read(@NonNull BufferReader<T> reader) throws LuaException {
+        push();
+        try {
+            ByteBuffer view = L.toDirectBuffer(-1);
+            return reader.read(view != null ? view : ByteBuffer.wrap(L.toBytes(-1)).asReadOnlyBuffer());
+        } finally {
+            L.pop(1);
+        }
+    }
+
+    public interface BufferReader<T> {
+        T read(@NonNull ByteBuffer view) throws LuaException;
     }
 
     @Override
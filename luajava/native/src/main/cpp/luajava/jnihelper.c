@@ -35,62 +35,75 @@ int initJNIBindings(JNIEnv *env) {
     /* Java Class */
     com_luajava_JuaAPI_jclassIndex = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                           "jclassIndex",
-                                                          "(JLjava/lang/Class;Ljava/lang/String;)I");
+                                                          "(Lcom/luajava/Lua;Ljava/lang/Class;Ljava/lang/String;)I");
     com_luajava_JuaAPI_jclassNew = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                         "jclassNew",
-                                                        "(JLjava/lang/Class;)I");
+                                                        "(Lcom/luajava/Lua;Ljava/lang/Class;)I");
     com_luajava_JuaAPI_jclassNewIndex = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                              "jclassNewIndex",
-                                                             "(JLjava/lang/Class;Ljava/lang/String;)I");
+                                                             "(Lcom/luajava/Lua;Ljava/lang/Class;Ljava/lang/String;)I");
     /* Java Object */
     com_luajava_JuaAPI_jobjectIndex = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                            "jobjectIndex",
-                                                           "(JLjava/lang/Object;Ljava/lang/String;)I");
+                                                           "(Lcom/luajava/Lua;Ljava/lang/Object;Ljava/lang/String;)I");
     com_luajava_JuaAPI_jobjectLength = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                             "jobjectLength",
-                                                            "(JLjava/lang/Object;)I");
+                                                            "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
     com_luajava_JuaAPI_jobjectNewIndex = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                               "jobjectNewIndex",
-                                                              "(JLjava/lang/Object;Ljava/lang/String;)I");
+                                                              "(Lcom/luajava/Lua;Ljava/lang/Object;Ljava/lang/String;)I");
     /* Java Array */
     com_luajava_JuaAPI_jarrayIndex = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                           "jarrayIndex",
-                                                          "(JLjava/lang/Object;)I");
+                                                          "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
     com_luajava_JuaAPI_jarrayNewIndex = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                              "jarrayNewIndex",
-                                                             "(JLjava/lang/Object;)I");
+                                                             "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
     com_luajava_JuaAPI_jarrayIpairsIterator = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                                    "jarrayIpairsIterator",
-                                                                   "(JLjava/lang/Object;)I");
+                                                                   "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
+    /* View Table */
+    com_luajava_JuaAPI_jviewIndex = bindJavaStaticMethod(env, com_luajava_JuaAPI,
+                                                        "jviewIndex",
+                                                        "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
+    com_luajava_JuaAPI_jviewMaterialize = bindJavaStaticMethod(env, com_luajava_JuaAPI,
+                                                              "jviewMaterialize",
+                                                              "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
     /* LuaJava Library */
     com_luajava_LuaJava = bindJavaClass(env, "com/luajava/LuaJava");
     com_luajava_LuaJava_bindClass = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                          "bindClass",
-                                                         "(JLjava/lang/String;)I");
+                                                         "(Lcom/luajava/Lua;Ljava/lang/String;)I");
+    com_luajava_LuaJava_findClass = bindJavaStaticMethod(env, com_luajava_LuaJava,
+                                                         "findClass",
+                                                         "(Lcom/luajava/Lua;Ljava/lang/String;)I");
     com_luajava_LuaJava_bindMethod = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                           "bindMethod",
-                                                          "(JLjava/lang/Object;Ljava/lang/String;[Ljava/lang/Class;)I");
+                                                          "(Lcom/luajava/Lua;Ljava/lang/Object;Ljava/lang/String;[Ljava/lang/Class;)I");
     com_luajava_LuaJava_toJavaObject = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                             "toJavaObject",
-                                                            "(JLjava/lang/Class;)I");
+                                                            "(Lcom/luajava/Lua;Ljava/lang/Class;)I");
     com_luajava_LuaJava_toJavaArray = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                            "toJavaArray",
-                                                           "(JLjava/lang/Class;)I");
+                                                           "(Lcom/luajava/Lua;Ljava/lang/Class;)I");
     com_luajava_LuaJava_toJavaMap = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                          "toJavaMap",
-                                                         "(JLjava/lang/Class;Ljava/lang/Class;)I");
+                                                         "(Lcom/luajava/Lua;Ljava/lang/Class;Ljava/lang/Class;)I");
     com_luajava_LuaJava_asTable = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                        "asTable",
-                                                       "(JLjava/lang/Object;)I");
+                                                       "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
     com_luajava_LuaJava_createArray = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                           "createArray",
-                                                          "(JLjava/lang/Class;[I)I");
+                                                          "(Lcom/luajava/Lua;Ljava/lang/Class;[I)I");
     com_luajava_LuaJava_createProxy = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                          "createProxy",
-                                                         "(JLjava/lang/Class;)I");
+                                                         "(Lcom/luajava/Lua;Ljava/lang/Class;)I");
+    com_luajava_LuaJava_typedArray = bindJavaStaticMethod(env, com_luajava_LuaJava,
+                                                         "typedArray",
+                                                         "(Lcom/luajava/Lua;Ljava/lang/Object;Ljava/lang/Class;)I");
     com_luajava_LuaJava_unwrap = bindJavaStaticMethod(env, com_luajava_LuaJava,
                                                       "unwrap",
-                                                      "(JLjava/lang/Object;)I");
+                                                      "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
     /* LuaJava Bridge API */
     com_luajava_JuaAPI_getStackTrace = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                             "getStackTrace",
@@ -101,22 +114,23 @@ int initJNIBindings(JNIEnv *env) {
     /* Java CFunction */
     com_luajava_JuaAPI_jfunctionCall = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                             "jfunctionCall",
-                                                            "(JLjava/lang/Object;)I");
+                                                            "(Lcom/luajava/Lua;Ljava/lang/Object;)I");
     /* Java Module */
     com_luajava_JuaAPI_jmoduleLoad = bindJavaStaticMethod(env, com_luajava_JuaAPI,
                                                           "jmoduleLoad",
-                                                          "(JLjava/lang/String;)I");
+                                                          "(Lcom/luajava/Lua;Ljava/lang/String;)I");
     CHECK_NULL(
             java_lang_Object && java_lang_Object_toString && java_lang_Object_equals &&
             java_lang_Class && java_lang_Class_forName && java_lang_Class_toString &&
             java_lang_Class_getName &&
             java_lang_Throwable && java_lang_Throwable_getMessage && java_lang_Throwable_toString &&
             com_luajava_LuaJava &&
-            com_luajava_LuaJava_bindClass && com_luajava_LuaJava_bindMethod &&
+            com_luajava_LuaJava_bindClass && com_luajava_LuaJava_findClass &&
+            com_luajava_LuaJava_bindMethod &&
             com_luajava_LuaJava_toJavaObject && com_luajava_LuaJava_toJavaArray &&
             com_luajava_LuaJava_toJavaMap && com_luajava_LuaJava_asTable &&
             com_luajava_LuaJava_createArray && com_luajava_LuaJava_createProxy &&
-            com_luajava_LuaJava_unwrap &&
+            com_luajava_LuaJava_typedArray && com_luajava_LuaJava_unwrap &&
             com_luajava_JuaAPI &&
             com_luajava_JuaAPI_jclassIndex && com_luajava_JuaAPI_jclassNew &&
             com_luajava_JuaAPI_jclassNewIndex &&
@@ -124,6 +138,7 @@ int initJNIBindings(JNIEnv *env) {
             com_luajava_JuaAPI_jobjectNewIndex &&
             com_luajava_JuaAPI_jarrayIndex && com_luajava_JuaAPI_jarrayNewIndex &&
             com_luajava_JuaAPI_jarrayIpairsIterator &&
+            com_luajava_JuaAPI_jviewIndex && com_luajava_JuaAPI_jviewMaterialize &&
             com_luajava_JuaAPI_getStackTrace &&
             com_luajava_JuaAPI_allocateDirectBuffer &&
             com_luajava_JuaAPI_jfunctionCall && com_luajava_JuaAPI_jmoduleLoad
@@ -146,11 +161,17 @@ int updateJNIEnv(JNIEnv *env) {
 }
 
 
+// JNIEnv is per thread and stays valid until the thread detaches, which never happens
+// while it is running Lua code, so it is looked up once per thread
+static __thread JNIEnv *cachedEnv = NULL;
+
 JNIEnv *getJNIEnv(lua_State *L) {
+    JNIEnv *env = cachedEnv;
+    if (env != NULL) return env;
     if (javaVm != NULL) {
-        JNIEnv *env = NULL;
         int result = (*javaVm)->GetEnv(javaVm, (void **) &env, jniEnvVersion);
         if (result == JNI_OK) {
+            cachedEnv = env;
             return env;
         } else if (result == JNI_EDETACHED) {
             JavaVMAttachArgs args;
@@ -159,6 +180,7 @@ JNIEnv *getJNIEnv(lua_State *L) {
             args.group = NULL; // thread group
             result = (*javaVm)->AttachCurrentThread(javaVm, &env, &args);
             if (result == JNI_OK) {
+                cachedEnv = env;
                 return env;
             }
         }
@@ -37,6 +37,8 @@ JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_jobjectLength;
 JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_jarrayIndex;
 JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_jarrayNewIndex;
 JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_jarrayIpairsIterator;
+JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_jviewIndex;
+JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_jviewMaterialize;
 JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_jfunctionCall;
 JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_jmoduleLoad;
 JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_getStackTrace;
@@ -44,6 +46,7 @@ JNI_HELPER_EXTERN jmethodID com_luajava_JuaAPI_allocateDirectBuffer;
 
 JNI_HELPER_EXTERN jclass com_luajava_LuaJava;
 JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_bindClass;
+JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_findClass;
 JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_bindMethod;
 JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_toJavaObject;
 JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_toJavaArray;
@@ -51,6 +54,7 @@ JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_toJavaMap;
 JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_asTable;
 JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_createArray;
 JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_createProxy;
+JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_typedArray;
 JNI_HELPER_EXTERN jmethodID com_luajava_LuaJava_unwrap;
 
 /* some useful macros */
@@ -80,93 +80,6 @@ const char *luaJ_dumpstack(lua_State *L) {
     return msg;
 }
 
-// NOLINTNEXTLINE(misc-no-recursion)
-int luaJ_copy(lua_State *from, lua_State *to, int index) {
-    if (!lua_checkstack(to, 1)) return -1;
-    index = luaJ_absindex(from, index);
-    int type = lua_type(from, index);
-    switch (type) {
-        case LUA_TNONE:
-        case LUA_TNIL:
-            lua_pushnil(to);
-            break;
-        case LUA_TBOOLEAN:
-            lua_pushboolean(to, lua_toboolean(from, index));
-            break;
-        case LUA_TNUMBER:
-            lua_pushnumber(to, lua_tonumber(from, index));
-            break;
-        case LUA_TSTRING: {
-            size_t len;
-            const char *str = lua_tolstring(from, index, &len);
-            lua_pushlstring(to, str, len);
-            break;
-        }
-        case LUA_TTABLE: {
-            lua_newtable(to);
-            lua_pushnil(from);
-            while (lua_next(from, index)) {
-                if (luaJ_copy(from, to, -2) != 0) {
-                    lua_pop(from, 2);
-                    lua_pop(to, 1);
-                    return -1;
-                }
-                if (luaJ_copy(from, to, -1) != 0) {
-                    lua_pop(from, 2);
-                    lua_pop(to, 3);
-                    return -1;
-                }
-
-                lua_settable(to, -3);
-                lua_pop(from, 1);
-            }
-            break;
-        }
-        case LUA_TFUNCTION:
-            if (lua_iscfunction(from, index)) {
-                lua_CFunction func = lua_tocfunction(from, index);
-                lua_pushcfunction(to, func);
-            } else {
-                DumpBuffer buffer;
-                lua_pushvalue(from, index);
-                if (luaJ_dumptobuffer(from, &buffer) != 0) {
-                    lua_pop(from, 1);
-                    return -1;
-                }
-                lua_pop(from, 1);
-                if (luaL_loadbuffer(to, (const char *) buffer.buffer,
-                                    buffer.size, "=(copied)") != 0) {
-                    free(buffer.buffer);
-                    lua_pop(to, 1);
-                    return -1;
-                }
-                free(buffer.buffer);
-            }
-            break;
-        case LUA_TLIGHTUSERDATA:
-            lua_pushlightuserdata(to, lua_touserdata(from, index));
-            break;
-        case LUA_TUSERDATA: {
-            void *src_userdata = lua_touserdata(from, index);
-            size_t size = lua_objlen(from, index);
-            void *dst_userdata = lua_newuserdata(to, size);
-            memcpy(dst_userdata, src_userdata, size);
-            if (lua_getmetatable(from, index)) {
-                if (luaJ_copy(from, to, -1) == 0) {
-                    lua_setmetatable(to, -2);
-                } else {
-                    lua_pop(to, 1);
-                }
-                lua_pop(from, 1);
-            }
-            break;
-        }
-        default:
-            return -1;
-    }
-    return 0;
-}
-
 int luaJ_xpcall(lua_State *L, int nArgs, int nResults) {
     int errfunc = -nArgs - 2;
     lua_insert(L, errfunc);
@@ -19,8 +19,6 @@ LUALIB_API int luaJ_dumptobuffer(lua_State *L, DumpBuffer *buffer);
 
 LUALIB_API int luaJ_dobuffer(lua_State *L, unsigned char *buffer, int size, const char *name);
 
-LUALIB_API int luaJ_copy(lua_State *from, lua_State *to, int index);
-
 LUALIB_API int luaJ_xpcall(lua_State *L, int nargs, int nresults);
 
 LUALIB_API const char* luaJ_dumpstack(lua_State *L);
@@ -0,0 +1,808 @@
+#include <stdlib.h>
+#include <string.h>
+#include "luacopy.h"
+#include "luacomp.h"
+#include "luajavacore.h"
+
+const char JAVA_SHARED_TABLE_META_REGISTRY[] = "__jshared__";
+
+// nesting limit of copied and shared values, keeps the recursion off the end of the C stack
+#define COPY_MAX_DEPTH 200
+// registry of the source state: function => its bytecode, weak keys
+#define COPY_DUMP_CACHE "__jcopy_dumps__"
+// registry of the target state: bytecode => loaded function without upvalues, weak values
+#define COPY_PROTO_CACHE "__jcopy_protos__"
+
+/* Shared Table */
+// An immutable table living outside of any Lua state. It is reference counted, so that every state
+// holding it reads the same memory, and can be passed between states without copying its content.
+// Only nil, booleans, numbers, strings and other shared tables can be stored.
+typedef struct SharedTable SharedTable;
+
+typedef struct {
+    int type; // LUA_TNIL for absent values and empty slots
+    union {
+        int boolean;
+        lua_Number number;
+        struct {
+            char *data;
+            size_t length;
+        } string;
+        SharedTable *table;
+    } u;
+} SharedValue;
+
+typedef struct {
+    SharedValue key;
+    SharedValue value;
+    unsigned int hash;
+} SharedEntry;
+
+struct SharedTable {
+    int refcount;
+    size_t narray; // values of the keys 1..narray
+    SharedValue *array;
+    size_t capacity; // hash slots, a power of two or 0
+    SharedEntry *entries;
+};
+
+static void retainShared(SharedTable *table) {
+    __atomic_fetch_add(&table->refcount, 1, __ATOMIC_RELAXED);
+}
+
+static void releaseSharedValue(SharedValue *value);
+
+// NOLINTNEXTLINE(misc-no-recursion)
+static void releaseShared(SharedTable *table) {
+    if (__atomic_fetch_sub(&table->refcount, 1, __ATOMIC_ACQ_REL) != 1) return;
+    for (size_t i = 0; i < table->narray; i++) {
+        releaseSharedValue(&table->array[i]);
+    }
+    for (size_t i = 0; i < table->capacity; i++) {
+        releaseSharedValue(&table->entries[i].key);
+        releaseSharedValue(&table->entries[i].value);
+    }
+    free(table->array);
+    free(table->entries);
+    free(table);
+}
+
+// NOLINTNEXTLINE(misc-no-recursion)
+static void releaseSharedValue(SharedValue *value) {
+    if (value->type == LUA_TSTRING) {
+        free(value->u.string.data);
+    } else if (value->type == LUA_TTABLE) {
+        releaseShared(value->u.table);
+    }
+    value->type = LUA_TNIL;
+}
+
+static unsigned int hashBytes(const char *data, size_t length) {
+    unsigned int hash = 2166136261u; // FNV-1a
+    for (size_t i = 0; i < length; i++) {
+        hash = (hash ^ (unsigned char) data[i]) * 16777619u;
+    }
+    return hash;
+}
+
+static unsigned int hashNumber(lua_Number number) {
+    if (number == 0) number = 0; // -0 and 0 are the same key
+    unsigned long long bits;
+    memcpy(&bits, &number, sizeof(bits));
+    return (unsigned int) (bits ^ (bits >> 32)) * 2654435761u;
+}
+
+// Hashes the key at index, returns 0 for types that cannot be shared keys
+static int hashKey(lua_State *L, int index, unsigned int *hash) {
+    switch (lua_type(L, index)) {
+        case LUA_TBOOLEAN:
+            *hash = lua_toboolean(L, index) ? 2 : 1;
+            return 1;
+        case LUA_TNUMBER:
+            *hash = hashNumber(lua_tonumber(L, index));
+            return 1;
+        case LUA_TSTRING: {
+            size_t length;
+            const char *data = lua_tolstring(L, index, &length);
+            *hash = hashBytes(data, length);
+            return 1;
+        }
+        default:
+            return 0;
+    }
+}
+
+static int keyEquals(const SharedValue *key, lua_State *L, int index) {
+    if (key->type != lua_type(L, index)) return 0;
+    switch (key->type) {
+        case LUA_TBOOLEAN:
+            return key->u.boolean == lua_toboolean(L, index);
+        case LUA_TNUMBER:
+            return key->u.number == lua_tonumber(L, index);
+        case LUA_TSTRING: {
+            size_t length;
+            const char *data = lua_tolstring(L, index, &length);
+            return key->u.string.length == length && memcmp(key->u.string.data, data, length) == 0;
+        }
+        default:
+            return 0;
+    }
+}
+
+static int isArrayKey(lua_State *L, int index, size_t narray) {
+    if (lua_type(L, index) != LUA_TNUMBER) return 0;
+    lua_Number number = lua_tonumber(L, index);
+    return number >= 1 && number <= (lua_Number) narray && number == (lua_Number) (size_t) number;
+}
+
+// Finds the value of the key at index, NULL if absent
+static const SharedValue *getShared(SharedTable *table, lua_State *L, int index) {
+    if (isArrayKey(L, index, table->narray)) {
+        return &table->array[(size_t) lua_tonumber(L, index) - 1];
+    }
+    unsigned int hash;
+    if (table->capacity == 0 || !hashKey(L, index, &hash)) return NULL;
+    size_t mask = table->capacity - 1;
+    for (size_t i = hash & mask;; i = (i + 1) & mask) {
+        SharedEntry *entry = &table->entries[i];
+        if (entry->key.type == LUA_TNIL) return NULL;
+        if (entry->hash == hash && keyEquals(&entry->key, L, index)) return &entry->value;
+    }
+}
+
+static int sharedIndex(lua_State *L);
+static int sharedNewIndex(lua_State *L);
+static int sharedLength(lua_State *L);
+static int sharedPairs(lua_State *L);
+static int sharedIpairs(lua_State *L);
+static int sharedEquals(lua_State *L);
+static int sharedToString(lua_State *L);
+static int sharedGC(lua_State *L);
+
+// Pushes a new userdata holding a reference to the table
+static void pushSharedTable(lua_State *L, SharedTable *table) {
+    SharedTable **box = (SharedTable **) lua_newuserdata(L, sizeof(SharedTable *));
+    *box = table;
+    retainShared(table);
+    if (luaL_newmetatable(L, JAVA_SHARED_TABLE_META_REGISTRY)) {
+        lua_pushcfunction(L, &sharedIndex);
+        lua_setfield(L, -2, "__index");
+        lua_pushcfunction(L, &sharedNewIndex);
+        lua_setfield(L, -2, "__newindex");
+        lua_pushcfunction(L, &sharedLength);
+        lua_setfield(L, -2, "__len");
+        lua_pushcfunction(L, &sharedPairs);
+        lua_setfield(L, -2, "__pairs");
+        lua_pushcfunction(L, &sharedIpairs);
+        lua_setfield(L, -2, "__ipairs");
+        lua_pushcfunction(L, &sharedEquals);
+        lua_setfield(L, -2, "__eq");
+        lua_pushcfunction(L, &sharedToString);
+        lua_setfield(L, -2, "__tostring");
+        lua_pushcfunction(L, &sharedGC);
+        lua_setfield(L, -2, "__gc");
+    }
+    lua_setmetatable(L, -2);
+}
+
+static void pushSharedValue(lua_State *L, const SharedValue *value) {
+    switch (value->type) {
+        case LUA_TBOOLEAN:
+            lua_pushboolean(L, value->u.boolean);
+            break;
+        case LUA_TNUMBER:
+            lua_pushnumber(L, value->u.number);
+            break;
+        case LUA_TSTRING:
+            lua_pushlstring(L, value->u.string.data, value->u.string.length);
+            break;
+        case LUA_TTABLE:
+            pushSharedTable(L, value->u.table);
+            break;
+        default:
+            lua_pushnil(L);
+            break;
+    }
+}
+
+// Returns the table of the shared userdata at index, NULL for other values
+static SharedTable *toShared(lua_State *L, int index) {
+    if (lua_type(L, index) != LUA_TUSERDATA || !lua_getmetatable(L, index)) return NULL;
+    luaL_getmetatable(L, JAVA_SHARED_TABLE_META_REGISTRY);
+    int isShared = lua_rawequal(L, -1, -2);
+    lua_pop(L, 2);
+    return isShared ? *(SharedTable **) lua_touserdata(L, index) : NULL;
+}
+
+static SharedTable *checkShared(lua_State *L, int index) {
+    SharedTable *table = *(SharedTable **) luaL_checkudata(L, index, JAVA_SHARED_TABLE_META_REGISTRY);
+    if (table == NULL) luaL_argerror(L, index, "released shared table");
+    return table;
+}
+
+static int sharedIndex(lua_State *L) {
+    const SharedValue *value = getShared(checkShared(L, 1), L, 2);
+    if (value) {
+        pushSharedValue(L, value);
+    } else {
+        lua_pushnil(L);
+    }
+    return 1;
+}
+
+static int sharedNewIndex(lua_State *L) {
+    return luaL_error(L, "attempt to modify a shared table");
+}
+
+static int sharedLength(lua_State *L) {
+    lua_pushinteger(L, (lua_Integer) checkShared(L, 1)->narray);
+    return 1;
+}
+
+// upvalues: the shared userdata, the position of the next slot
+static int sharedNext(lua_State *L) {
+    SharedTable *table = *(SharedTable **) lua_touserdata(L, lua_upvalueindex(1));
+    size_t position = (size_t) lua_tonumber(L, lua_upvalueindex(2));
+    int found = 0;
+    while (!found && position < table->narray) {
+        const SharedValue *value = &table->array[position++];
+        if (value->type != LUA_TNIL) {
+            lua_pushinteger(L, (lua_Integer) position);
+            pushSharedValue(L, value);
+            found = 1;
+        }
+    }
+    while (!found && position - table->narray < table->capacity) {
+        const SharedEntry *entry = &table->entries[position++ - table->narray];
+        if (entry->key.type != LUA_TNIL) {
+            pushSharedValue(L, &entry->key);
+            pushSharedValue(L, &entry->value);
+            found = 1;
+        }
+    }
+    lua_pushnumber(L, (lua_Number) position);
+    lua_replace(L, lua_upvalueindex(2));
+    if (found) return 2;
+    lua_pushnil(L);
+    return 1;
+}
+
+static int sharedPairs(lua_State *L) {
+    checkShared(L, 1);
+    lua_pushvalue(L, 1);
+    lua_pushnumber(L, 0);
+    lua_pushcclosure(L, &sharedNext, 2);
+    lua_pushvalue(L, 1);
+    lua_pushnil(L);
+    return 3;
+}
+
+static int sharedIpairsIterator(lua_State *L) {
+    SharedTable *table = checkShared(L, 1);
+    lua_Integer i = luaL_checkinteger(L, 2) + 1;
+    if (i < 1 || (size_t) i > table->narray || table->array[i - 1].type == LUA_TNIL) return 0;
+    lua_pushinteger(L, i);
+    pushSharedValue(L, &table->array[i - 1]);
+    return 2;
+}
+
+static int sharedIpairs(lua_State *L) {
+    checkShared(L, 1);
+    lua_pushcfunction(L, &sharedIpairsIterator);
+    lua_pushvalue(L, 1);
+    lua_pushinteger(L, 0);
+    return 3;
+}
+
+static int sharedEquals(lua_State *L) {
+    lua_pushboolean(L, checkShared(L, 1) == checkShared(L, 2));
+    return 1;
+}
+
+static int sharedToString(lua_State *L) {
+    lua_pushfstring(L, "shared table: %p", (void *) checkShared(L, 1));
+    return 1;
+}
+
+static int sharedGC(lua_State *L) {
+    SharedTable **box = (SharedTable **) lua_touserdata(L, 1);
+    if (box && *box) {
+        releaseShared(*box);
+        *box = NULL;
+    }
+    return 0;
+}
+
+typedef struct {
+    lua_State *L;
+    int seen; // table => lightuserdata(SharedTable) once done, true while in progress
+    int depth;
+    const char *error;
+} ShareState;
+
+static SharedTable *shareTable(ShareState *s, int index);
+
+// NOLINTNEXTLINE(misc-no-recursion)
+static int shareValue(ShareState *s, int index, SharedValue *out) {
+    lua_State *L = s->L;
+    int type = lua_type(L, index);
+    switch (type) {
+        case LUA_TNIL:
+            break;
+        case LUA_TBOOLEAN:
+            out->u.boolean = lua_toboolean(L, index);
+            break;
+        case LUA_TNUMBER:
+            out->u.number = lua_tonumber(L, index);
+            break;
+        case LUA_TSTRING: {
+            size_t length;
+            const char *data = lua_tolstring(L, index, &length);
+            out->u.string.data = (char *) malloc(length + 1);
+            if (out->u.string.data == NULL) {
+                s->error = "not enough memory";
+                return -1;
+            }
+            memcpy(out->u.string.data, data, length + 1);
+            out->u.string.length = length;
+            break;
+        }
+        case LUA_TTABLE:
+            out->u.table = shareTable(s, index);
+            if (out->u.table == NULL) return -1;
+            break;
+        case LUA_TUSERDATA:
+            // already shared tables are nested as they are
+            out->u.table = toShared(L, index);
+            if (out->u.table != NULL) {
+                retainShared(out->u.table);
+                type = LUA_TTABLE;
+                break;
+            }
+            // fallthrough
+        default:
+            s->error = "only nil, booleans, numbers, strings and tables can be shared";
+            return -1;
+    }
+    out->type = type;
+    return 0;
+}
+
+static void putShared(SharedTable *table, unsigned int hash, const SharedValue *key, const SharedValue *value) {
+    size_t mask = table->capacity - 1;
+    size_t i = hash & mask;
+    while (table->entries[i].key.type != LUA_TNIL) {
+        i = (i + 1) & mask;
+    }
+    table->entries[i].key = *key;
+    table->entries[i].value = *value;
+    table->entries[i].hash = hash;
+}
+
+// Returns a new reference to the shared copy of the table at index, NULL on failure
+// NOLINTNEXTLINE(misc-no-recursion)
+static SharedTable *shareTable(ShareState *s, int index) {
+    lua_State *L = s->L;
+    index = luaJ_absindex(L, index);
+    if (s->depth >= COPY_MAX_DEPTH || !lua_checkstack(L, 4)) {
+        s->error = "table nesting is too deep";
+        return NULL;
+    }
+    if (luaJ_materializeview(L, index) != 0) {
+        lua_pop(L, 1);
+        s->error = "failed to convert a view table";
+        return NULL;
+    }
+    lua_pushvalue(L, index);
+    lua_rawget(L, s->seen);
+    if (lua_islightuserdata(L, -1)) {
+        SharedTable *table = (SharedTable *) lua_touserdata(L, -1);
+        lua_pop(L, 1);
+        retainShared(table);
+        return table;
+    }
+    if (lua_toboolean(L, -1)) {
+        lua_pop(L, 1);
+        s->error = "tables with cycles cannot be shared";
+        return NULL;
+    }
+    lua_pop(L, 1);
+    lua_pushvalue(L, index);
+    lua_pushboolean(L, 1);
+    lua_rawset(L, s->seen);
+
+    size_t narray = lua_objlen(L, index);
+    size_t nhash = 0;
+    lua_pushnil(L);
+    while (lua_next(L, index)) {
+        lua_pop(L, 1);
+        if (!isArrayKey(L, -1, narray)) nhash++;
+    }
+    SharedTable *table = (SharedTable *) calloc(1, sizeof(SharedTable));
+    if (table == NULL) {
+        s->error = "not enough memory";
+        return NULL;
+    }
+    table->refcount = 1;
+    if (narray > 0) {
+        table->array = (SharedValue *) calloc(narray, sizeof(SharedValue));
+        table->narray = table->array ? narray : 0;
+    }
+    if (nhash > 0) {
+        size_t capacity = 4;
+        while (capacity < nhash * 2) capacity <<= 1;
+        table->entries = (SharedEntry *) calloc(capacity, sizeof(SharedEntry));
+        table->capacity = table->entries ? capacity : 0;
+    }
+    if (table->narray != narray || (nhash > 0 && table->capacity == 0)) {
+        releaseShared(table);
+        s->error = "not enough memory";
+        return NULL;
+    }
+
+    s->depth++;
+    int failed = 0;
+    for (size_t i = 0; !failed && i < narray; i++) {
+        lua_rawgeti(L, index, (int) (i + 1));
+        failed = shareValue(s, -1, &table->array[i]);
+        lua_pop(L, 1);
+    }
+    lua_pushnil(L);
+    while (!failed && lua_next(L, index)) {
+        unsigned int hash;
+        if (!isArrayKey(L, -2, narray)) {
+            SharedValue key = {LUA_TNIL}, value = {LUA_TNIL};
+            if (!hashKey(L, -2, &hash)) {
+                s->error = "only booleans, numbers and strings can be keys of shared tables";
+                failed = -1;
+            } else if ((failed = shareValue(s, -2, &key)) == 0 && (failed = shareValue(s, -1, &value)) == 0) {
+                putShared(table, hash, &key, &value);
+            } else {
+                releaseSharedValue(&key);
+            }
+        }
+        lua_pop(L, failed ? 2 : 1);
+    }
+    s->depth--;
+    if (failed) {
+        releaseShared(table);
+        return NULL;
+    }
+    lua_pushvalue(L, index);
+    lua_pushlightuserdata(L, table);
+    lua_rawset(L, s->seen);
+    return table;
+}
+
+int luaJ_share(lua_State *L, int index) {
+    index = luaJ_absindex(L, index);
+    if (toShared(L, index)) {
+        lua_pushvalue(L, index);
+        return 1;
+    }
+    if (!lua_istable(L, index)) {
+        lua_pushstring(L, "table expected");
+        return 0;
+    }
+    if (!lua_checkstack(L, 2)) {
+        lua_pushstring(L, "stack overflow");
+        return 0;
+    }
+    ShareState s = {L, 0, 0, NULL};
+    lua_newtable(L);
+    s.seen = lua_gettop(L);
+    SharedTable *table = shareTable(&s, index);
+    lua_pop(L, 1);
+    if (table == NULL) {
+        lua_pushstring(L, s.error);
+        return 0;
+    }
+    pushSharedTable(L, table);
+    releaseShared(table);
+    return 1;
+}
+
+/* Copy */
+typedef struct {
+    lua_State *from;
+    lua_State *to;
+    int seen; // index in `to`: lightuserdata(source object) => its copy
+    int depth;
+} CopyState;
+
+static const char *const javaMetaRegistries[] = {
+        JAVA_OBJECT_META_REGISTRY, JAVA_CLASS_META_REGISTRY,
+        JAVA_ARRAY_META_REGISTRY, JAVA_TYPED_ARRAY_META_REGISTRY
+};
+
+// Returns the registry name of the metatable of the Java userdata at index, NULL for other values
+static const char *getJavaMetaRegistry(lua_State *L, int index) {
+    if (!luaJ_isanyobject(L, index) || !lua_getmetatable(L, index)) return NULL;
+    const char *name = NULL;
+    for (size_t i = 0; name == NULL && i < sizeof(javaMetaRegistries) / sizeof(javaMetaRegistries[0]); i++) {
+        luaL_getmetatable(L, javaMetaRegistries[i]);
+        if (lua_rawequal(L, -1, -2)) name = javaMetaRegistries[i];
+        lua_pop(L, 1);
+    }
+    lua_pop(L, 1);
+    return name;
+}
+
+// Pushes registry[name], creating it with the weak mode if missing
+static void getCacheTable(lua_State *L, const char *name, const char *mode) {
+    lua_getfield(L, LUA_REGISTRYINDEX, name);
+    if (lua_istable(L, -1)) return;
+    lua_pop(L, 1);
+    lua_newtable(L);
+    lua_createtable(L, 0, 1);
+    lua_pushstring(L, mode);
+    lua_setfield(L, -2, "__mode");
+    lua_setmetatable(L, -2);
+    lua_pushvalue(L, -1);
+    lua_setfield(L, LUA_REGISTRYINDEX, name);
+}
+
+// Pushes the copy already made of the object at index, returns 0 (pushing nothing) if none
+static int pushSeen(CopyState *s, int index) {
+    lua_pushlightuserdata(s->to, (void *) lua_topointer(s->from, index));
+    lua_rawget(s->to, s->seen);
+    if (!lua_isnil(s->to, -1)) return 1;
+    lua_pop(s->to, 1);
+    return 0;
+}
+
+// Records the value on top of `to` as the copy of the object at index
+static void markSeen(CopyState *s, int index) {
+    lua_pushlightuserdata(s->to, (void *) lua_topointer(s->from, index));
+    lua_pushvalue(s->to, -2);
+    lua_rawset(s->to, s->seen);
+}
+
+static int countUpvalues(lua_State *L, int index) {
+    int n = 0;
+    while (lua_getupvalue(L, index, n + 1)) {
+        lua_pop(L, 1);
+        n++;
+    }
+    return n;
+}
+
+static int copyValue(CopyState *s, int index);
+
+// NOLINTNEXTLINE(misc-no-recursion)
+static int copyUpvalues(CopyState *s, int index, int n) {
+    for (int i = 1; i <= n; i++) {
+        lua_getupvalue(s->from, index, i);
+        if (copyValue(s, -1) != 0) {
+            lua_pop(s->from, 1);
+            return -1;
+        }
+        lua_pop(s->from, 1);
+        lua_setupvalue(s->to, -2, i);
+    }
+    return 0;
+}
+
+// NOLINTNEXTLINE(misc-no-recursion)
+static int copyFunction(CopyState *s, int index) {
+    lua_State *from = s->from, *to = s->to;
+    int nups = countUpvalues(from, index);
+    if (!lua_checkstack(from, 4) || !lua_checkstack(to, nups + 4)) return -1;
+    if (lua_iscfunction(from, index)) {
+        for (int i = 1; i <= nups; i++) {
+            lua_getupvalue(from, index, i);
+            int failed = copyValue(s, -1);
+            lua_pop(from, 1);
+            if (failed) {
+                lua_pop(to, i - 1);
+                return -1;
+            }
+        }
+        lua_pushcclosure(to, lua_tocfunction(from, index), nups);
+        return 0;
+    }
+    // the bytecode of each source function is dumped once
+    getCacheTable(from, COPY_DUMP_CACHE, "k");
+    lua_pushvalue(from, index);
+    lua_rawget(from, -2);
+    if (!lua_isstring(from, -1)) {
+        lua_pop(from, 1);
+        DumpBuffer buffer;
+        lua_pushvalue(from, index);
+        int failed = luaJ_dumptobuffer(from, &buffer);
+        lua_pop(from, 1);
+        if (failed) {
+            lua_pop(from, 1);
+            return -1;
+        }
+        lua_pushlstring(from, (const char *) buffer.buffer, buffer.size);
+        free(buffer.buffer);
+        lua_pushvalue(from, index);
+        lua_pushvalue(from, -2);
+        lua_rawset(from, -4);
+    }
+    lua_remove(from, -2);
+    size_t size;
+    const char *bytecode = lua_tolstring(from, -1, &size);
+    if (nups == 0) {
+        // nothing distinguishes two copies of a function without upvalues, the loaded one is reused
+        getCacheTable(to, COPY_PROTO_CACHE, "v");
+        lua_pushlstring(to, bytecode, size);
+        lua_rawget(to, -2);
+        if (!lua_isfunction(to, -1)) {
+            lua_pop(to, 1);
+            if (luaL_loadbuffer(to, bytecode, size, "=(copied)") != 0) {
+                lua_pop(to, 2);
+                lua_pop(from, 1);
+                return -1;
+            }
+            lua_pushlstring(to, bytecode, size);
+            lua_pushvalue(to, -2);
+            lua_rawset(to, -4);
+        }
+        lua_remove(to, -2);
+        lua_pop(from, 1);
+        return 0;
+    }
+    int failed = luaL_loadbuffer(to, bytecode, size, "=(copied)");
+    lua_pop(from, 1);
+    if (failed) {
+        lua_pop(to, 1);
+        return -1;
+    }
+    // a function may reach itself through its upvalues
+    markSeen(s, index);
+    if (copyUpvalues(s, index, nups) != 0) {
+        lua_pop(to, 1);
+        return -1;
+    }
+    return 0;
+}
+
+// NOLINTNEXTLINE(misc-no-recursion)
+static int copyTable(CopyState *s, int index) {
+    lua_State *from = s->from, *to = s->to;
+    if (!lua_checkstack(from, 3) || !lua_checkstack(to, 4)) return -1;
+    if (luaJ_materializeview(from, index) != 0) {
+        lua_pop(from, 1);
+        return -1;
+    }
+    lua_createtable(to, (int) lua_objlen(from, index), 0);
+    markSeen(s, index);
+    lua_pushnil(from);
+    while (lua_next(from, index)) {
+        if (copyValue(s, -2) != 0) {
+            lua_pop(from, 2);
+            lua_pop(to, 1);
+            return -1;
+        }
+        if (copyValue(s, -1) != 0) {
+            lua_pop(from, 2);
+            lua_pop(to, 2);
+            return -1;
+        }
+        lua_rawset(to, -3);
+        lua_pop(from, 1);
+    }
+    if (lua_getmetatable(from, index)) {
+        int failed = copyValue(s, -1);
+        lua_pop(from, 1);
+        if (failed) {
+            lua_pop(to, 1);
+            return -1;
+        }
+        lua_setmetatable(to, -2);
+    }
+    return 0;
+}
+
+// NOLINTNEXTLINE(misc-no-recursion)
+static int copyUserdata(CopyState *s, int index) {
+    lua_State *from = s->from, *to = s->to;
+    if (!lua_checkstack(from, 3) || !lua_checkstack(to, 3)) return -1;
+    SharedTable *table = toShared(from, index);
+    if (table) {
+        pushSharedTable(to, table);
+        return 0;
+    }
+    void *source = lua_touserdata(from, index);
+    size_t size = lua_objlen(from, index);
+    const char *javaMetaRegistry = getJavaMetaRegistry(from, index);
+    if (javaMetaRegistry) {
+        // Java userdata start with a global ref, the copy needs its own
+        JNIEnv *env = getJNIEnv(from);
+        jobject object = *(jobject *) source;
+        jobject global = object ? (*env)->NewGlobalRef(env, object) : NULL;
+        if (object && !global) return -1;
+        void *userdata = lua_newuserdata(to, size);
+        memcpy(userdata, source, size);
+        *(jobject *) userdata = global;
+        luaL_setmetatable(to, javaMetaRegistry);
+        return 0;
+    }
+    memcpy(lua_newuserdata(to, size), source, size);
+    markSeen(s, index);
+    if (lua_getmetatable(from, index)) {
+        int failed = copyValue(s, -1);
+        lua_pop(from, 1);
+        if (failed) {
+            lua_pop(to, 1);
+            return -1;
+        }
+        lua_setmetatable(to, -2);
+    }
+    return 0;
+}
+
+// NOLINTNEXTLINE(misc-no-recursion)
+static int copyValue(CopyState *s, int index) {
+    lua_State *from = s->from, *to = s->to;
+    if (!lua_checkstack(to, 1)) return -1;
+    index = luaJ_absindex(from, index);
+    int type = lua_type(from, index);
+    switch (type) {
+        case LUA_TNONE:
+        case LUA_TNIL:
+            lua_pushnil(to);
+            return 0;
+        case LUA_TBOOLEAN:
+            lua_pushboolean(to, lua_toboolean(from, index));
+            return 0;
+        case LUA_TNUMBER:
+            lua_pushnumber(to, lua_tonumber(from, index));
+            return 0;
+        case LUA_TSTRING: {
+            size_t len;
+            const char *str = lua_tolstring(from, index, &len);
+            lua_pushlstring(to, str, len);
+            return 0;
+        }
+        case LUA_TLIGHTUSERDATA:
+            lua_pushlightuserdata(to, lua_touserdata(from, index));
+            return 0;
+        case LUA_TTABLE:
+        case LUA_TFUNCTION:
+        case LUA_TUSERDATA:
+            break;
+        default:
+            return -1;
+    }
+    // shared references and cycles are copied once
+    if (pushSeen(s, index)) return 0;
+    if (s->depth >= COPY_MAX_DEPTH) return -1;
+    s->depth++;
+    int result;
+    if (type == LUA_TTABLE) {
+        result = copyTable(s, index);
+    } else if (type == LUA_TFUNCTION) {
+        result = copyFunction(s, index);
+    } else {
+        result = copyUserdata(s, index);
+    }
+    s->depth--;
+    return result;
+}
+
+int luaJ_copy(lua_State *from, lua_State *to, int index) {
+    index = luaJ_absindex(from, index);
+    if (from == to) {
+        if (!lua_checkstack(to, 1)) return -1;
+        lua_pushvalue(to, index);
+        return 0;
+    }
+    CopyState s = {from, to, 0, 0};
+    int type = lua_type(from, index);
+    if (type != LUA_TTABLE && type != LUA_TFUNCTION && type != LUA_TUSERDATA) {
+        return copyValue(&s, index);
+    }
+    if (!lua_checkstack(to, 2)) return -1;
+    lua_newtable(to);
+    s.seen = lua_gettop(to);
+    int result = copyValue(&s, index);
+    if (result == 0) {
+        lua_remove(to, s.seen);
+    } else {
+        lua_settop(to, s.seen - 1);
+    }
+    return result;
+}
@@ -0,0 +1,17 @@
+// Cross-state value transfer
+
+#ifndef LUACOPY_H
+#define LUACOPY_H
+
+#include "luakit.h"
+#include "jnihelper.h"
+
+extern const char JAVA_SHARED_TABLE_META_REGISTRY[];
+
+// Pushes onto `to` a copy of the value at index of `from`, returns 0 on success and -1 (pushing nothing) on failure
+LUALIB_API int luaJ_copy(lua_State *from, lua_State *to, int index);
+
+// Pushes an immutable shared copy of the table at index, or an error message on failure (returning 0)
+LUALIB_API int luaJ_share(lua_State *L, int index);
+
+#endif // LUACOPY_H
@@ -10,6 +10,7 @@
 #include "luakit.h"
 #include "luajavacore.h"
 #include "luacomp.h"
+#include "luacopy.h"
 #include "luajavaapi.h"
 #include "luajava.h"
 #include "luareg.h"
@@ -20,7 +21,7 @@ int luajava_bindClass(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     jstring string = ToString(name);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
-                                             com_luajava_LuaJava_bindClass, (jlong) L, string);
+                                             com_luajava_LuaJava_bindClass, luaJ_getjstate(L), string);
     DeleteString(string);
     return checkOrError(env, L, result);
 }
@@ -38,7 +39,7 @@ int luajava_bindMethod(lua_State *L) {
     }
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
                                              com_luajava_LuaJava_bindMethod,
-                                             (jlong) L, object, string, clazzArray);
+                                             luaJ_getjstate(L), object, string, clazzArray);
     DeleteString(string);
     (*env)->DeleteLocalRef(env, clazzArray);
     return checkOrError(env, L, result);
@@ -62,7 +63,7 @@ int luajava_toJavaObject(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
                                              com_luajava_LuaJava_toJavaObject,
-                                             (jlong) L, clazz);
+                                             luaJ_getjstate(L), clazz);
     return checkOrError(env, L, result);
 }
 
@@ -72,7 +73,7 @@ int luajava_toJavaArray(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
                                              com_luajava_LuaJava_toJavaArray,
-                                             (jlong) L, clazz);
+                                             luaJ_getjstate(L), clazz);
     return checkOrError(env, L, result);
 }
 
@@ -83,7 +84,7 @@ int luajava_toJavaMap(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
                                              com_luajava_LuaJava_toJavaMap,
-                                             (jlong) L, keyClazz, valueClazz);
+                                             luaJ_getjstate(L), keyClazz, valueClazz);
     return checkOrError(env, L, result);
 }
 
@@ -102,7 +103,7 @@ int luajava_asTable(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
                                              com_luajava_LuaJava_asTable,
-                                             (jlong) L, object);
+                                             luaJ_getjstate(L), object);
     return checkOrError(env, L, result);
 }
 
@@ -117,8 +118,15 @@ int luajava_newInstance(lua_State *L) {
 
 int luajava_createArray(lua_State *L) {
     jclass clazz = luaJ_checkclass(L, 1);
-    luaL_checkinteger(L, 2);
     JNIEnv *env = getJNIEnv(L);
+    if (lua_istable(L, 2)) {
+        // createArray(class, {...}): one dimension initialized from the table
+        jint result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
+                                                  com_luajava_LuaJava_createArray,
+                                                  luaJ_getjstate(L), clazz, NULL);
+        return checkOrError(env, L, result);
+    }
+    luaL_checkinteger(L, 2);
     int dimCount = lua_gettop(L) - 1;
     jintArray dimArray = (*env)->NewIntArray(env, dimCount);
     if (dimArray == NULL) {
@@ -141,7 +149,7 @@ int luajava_createArray(lua_State *L) {
     (*env)->ReleaseIntArrayElements(env, dimArray, dims, 0);
     jint result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
                                               com_luajava_LuaJava_createArray,
-                                              (jlong) L, clazz, dimArray);
+                                              luaJ_getjstate(L), clazz, dimArray);
     (*env)->DeleteLocalRef(env, dimArray);
     return checkOrError(env, L, result);
 }
@@ -151,7 +159,17 @@ int luajava_createProxy(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
                                              com_luajava_LuaJava_createProxy,
-                                             (jlong) L, clazz);
+                                             luaJ_getjstate(L), clazz);
+    return checkOrError(env, L, result);
+}
+
+int luajava_typedArray(lua_State *L) {
+    jobject object = luaJ_checkanyobject(L, 1);
+    jclass clazz = luaJ_toclass(L, 2);
+    JNIEnv *env = getJNIEnv(L);
+    int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
+                                             com_luajava_LuaJava_typedArray,
+                                             luaJ_getjstate(L), object, clazz);
     return checkOrError(env, L, result);
 }
 
@@ -160,10 +178,18 @@ int luajava_unwrap(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
                                              com_luajava_LuaJava_unwrap,
-                                             (jlong) L, object);
+                                             luaJ_getjstate(L), object);
     return checkOrError(env, L, result);
 }
 
+int luajava_share(lua_State *L) {
+    luaL_checkany(L, 1);
+    if (!luaJ_share(L, 1)) {
+        return lua_error(L);
+    }
+    return 1;
+}
+
 static const luaL_Reg javalib[] = {
         {"bindClass",    luajava_bindClass},
         {"bindMethod",   luajava_bindMethod},
@@ -177,7 +203,9 @@ static const luaL_Reg javalib[] = {
         {"new",          luajava_newInstance},
         {"createArray",  luajava_createArray},
         {"createProxy",  luajava_createProxy},
+        {"typedArray",   luajava_typedArray},
         {"unwrap",       luajava_unwrap},
+        {"share",        luajava_share},
         {NULL, NULL}
 };
 
@@ -1,3 +1,4 @@
+#include <stdlib.h>
 #include <string.h>
 #include "luajavaapi.h"
 #include "luajavacore.h"
@@ -36,7 +37,9 @@ int checkOrError(JNIEnv *env, lua_State *L, jint ret) {
 jobject luaJ_dump(JNIEnv *env, lua_State *L) {
     DumpBuffer dumpBuffer;
     if (!luaJ_dumptobuffer(L, &dumpBuffer)) {
-        return luaJ_javabuffer_new(env, L, dumpBuffer.buffer, (jint) dumpBuffer.size);
+        jobject buffer = luaJ_javabuffer_new(env, L, dumpBuffer.buffer, (jint) dumpBuffer.size);
+        free(dumpBuffer.buffer);
+        return buffer;
     }
     return NULL;
 }
@@ -83,13 +86,32 @@ int luaJ_dojavabuffer(JNIEnv *env, lua_State *L, jobject obj_buffer, int size, c
     return luaJ_dobuffer(L, buffer, size, name);
 }
 
-void luaJ_pushbuffer(JNIEnv *env, lua_State *L, jobject obj_buffer) {
+void luaJ_pushbuffer(JNIEnv *env, lua_State *L, jobject obj_buffer, jint offset, jint size) {
     unsigned char *buffer = obj_buffer ? (unsigned char *) (*env)->GetDirectBufferAddress(
             env,
             obj_buffer)
                                        : NULL;
     if (buffer == NULL) return lua_pushnil(L);
-    lua_pushstring(L, (char *) buffer);
+    // Lua strings may hold any bytes, including \0
+    lua_pushlstring(L, (char *) buffer + offset, (size_t) size);
+}
+
+void luaJ_pushbytes(JNIEnv *env, lua_State *L, jbyteArray bytes, jint offset, jint length) {
+    // no critical region, pushing a string may run a GC step calling back into Java
+    jbyte *elements = (*env)->GetByteArrayElements(env, bytes, NULL);
+    if (elements == NULL) return lua_pushnil(L);
+    lua_pushlstring(L, (const char *) elements + offset, (size_t) length);
+    (*env)->ReleaseByteArrayElements(env, bytes, elements, JNI_ABORT);
+}
+
+jbyteArray luaJ_tobytes(JNIEnv *env, lua_State *L, int i) {
+    size_t len;
+    const char *str = lua_tolstring(L, i, &len);
+    if (str == NULL) return NULL;
+    jbyteArray bytes = (*env)->NewByteArray(env, (jsize) len);
+    if (bytes == NULL) return NULL; // OutOfMemoryError pending
+    (*env)->SetByteArrayRegion(env, bytes, 0, (jsize) len, (const jbyte *) str);
+    return bytes;
 }
 
 void luaJ_pushstring(JNIEnv *env, lua_State *L, jstring j_str) {
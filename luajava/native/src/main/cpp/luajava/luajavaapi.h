@@ -23,7 +23,11 @@ jobject luaJ_tojavabuffer(JNIEnv *env, lua_State *L, int i);
 
 jobject luaJ_javadirectbuffer_new(JNIEnv *env, lua_State *L, int i);
 
-void luaJ_pushbuffer(JNIEnv *env, lua_State *L, jobject obj_buffer);
+void luaJ_pushbuffer(JNIEnv *env, lua_State *L, jobject obj_buffer, jint offset, jint size);
+
+void luaJ_pushbytes(JNIEnv *env, lua_State *L, jbyteArray bytes, jint offset, jint length);
+
+jbyteArray luaJ_tobytes(JNIEnv *env, lua_State *L, int i);
 
 void luaJ_pushstring(JNIEnv *env, lua_State *L, jstring string);
 
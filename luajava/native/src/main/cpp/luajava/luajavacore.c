@@ -1,5 +1,6 @@
 #include <stdbool.h>
 #include <string.h>
+#include <stdint.h>
 #include <stdlib.h>
 #include "jnihelper.h"
 #include "luakit.h"
@@ -16,10 +17,35 @@ lua_State *luaJ_newstate() {
     return L;
 }
 
+/* Java State */
+// registry[lightuserdata(L)] = lightuserdata(global ref of the com.luajava.Lua object)
+void luaJ_setjstate(JNIEnv *env, lua_State *L, jobject state) {
+    jobject old = luaJ_getjstate(L);
+    if (old) (*env)->DeleteGlobalRef(env, old);
+    lua_pushlightuserdata(L, L);
+    jobject global = state ? (*env)->NewGlobalRef(env, state) : NULL;
+    if (global) {
+        lua_pushlightuserdata(L, global);
+    } else {
+        lua_pushnil(L);
+    }
+    lua_rawset(L, LUA_REGISTRYINDEX);
+}
+
+jobject luaJ_getjstate(lua_State *L) {
+    lua_pushlightuserdata(L, L);
+    lua_rawget(L, LUA_REGISTRYINDEX);
+    jobject state = (jobject) lua_touserdata(L, -1);
+    lua_pop(L, 1);
+    return state;
+}
+
 // For template usage
 const char JAVA_CLASS_META_REGISTRY[] = "__jclass__";
 const char JAVA_OBJECT_META_REGISTRY[] = "__jobject__";
 const char JAVA_ARRAY_META_REGISTRY[] = "__jarray__";
+const char JAVA_TYPED_ARRAY_META_REGISTRY[] = "__jtypedarray__";
+const char JAVA_VIEW_META_REGISTRY[] = "__jview__";
 
 const char JAVA_CLASS_TYPENAME[] = "Java Class";
 const char JAVA_OBJECT_NAME[] = "Java Object";
@@ -27,6 +53,8 @@ const char JAVA_ARRAY_NAME[] = "Java Array";
 const char JAVA_FUNC_NAME[] = "Java Wrapper Function";
 
 const char JAVA_OBJECT_ID[] = "__jobjectid__";
+const char JAVA_KEY_CACHE[] = "__jkeycache__";
+const char JAVA_KEY_META_REGISTRY[] = "__jkey__";
 
 /* Java Common API */
 
@@ -64,6 +92,208 @@ int luaJ_pusharray(JNIEnv *env, lua_State *L, jarray arr) {
     return 0;
 }
 
+/* Primitive Array API */
+#define FILL_TABLE(TYPE) { \
+        TYPE *elements = (TYPE *) data; \
+        for (jsize i = 0; i < length; i++) { \
+            lua_pushnumber(L, (lua_Number) elements[i]); \
+            lua_rawseti(L, -2, i + 1); \
+        } \
+    } break
+
+#define FILL_ARRAY(TYPE, CONVERT) { \
+        TYPE *elements = (TYPE *) data; \
+        for (jsize i = 0; i < length; i++) { \
+            lua_rawgeti(L, index, i + 1); \
+            if (lua_type(L, -1) != LUA_TNUMBER) { \
+                lua_pop(L, 1); \
+                failed = i + 1; \
+                break; \
+            } \
+            elements[i] = (TYPE) CONVERT(L, -1); \
+            lua_pop(L, 1); \
+        } \
+    } break
+
+// Pushes a new table holding the elements of a primitive array, copied in one critical region.
+// The table is presized, so that no Lua allocation happens while the array is pinned.
+int luaJ_pushprimitivearray(JNIEnv *env, lua_State *L, jarray arr, int kind) {
+    jsize length = (*env)->GetArrayLength(env, arr);
+    lua_createtable(L, length, 0);
+    if (length == 0) return 1;
+    void *data = (*env)->GetPrimitiveArrayCritical(env, arr, NULL);
+    if (data == NULL) {
+        lua_pop(L, 1);
+        return 0;
+    }
+    switch (kind) {
+        case JAVA_PRIMITIVE_BYTE: FILL_TABLE(jbyte);
+        case JAVA_PRIMITIVE_SHORT: FILL_TABLE(jshort);
+        case JAVA_PRIMITIVE_INT: FILL_TABLE(jint);
+        case JAVA_PRIMITIVE_LONG: FILL_TABLE(jlong);
+        case JAVA_PRIMITIVE_FLOAT: FILL_TABLE(jfloat);
+        case JAVA_PRIMITIVE_DOUBLE: FILL_TABLE(jdouble);
+        default:
+            break;
+    }
+    (*env)->ReleasePrimitiveArrayCritical(env, arr, data, JNI_ABORT);
+    return 1;
+}
+
+// Fills a primitive array from t[1..length] of the table at index.
+// Returns 0 on success, the 1-based position of the first non-number element (the array is then left
+// untouched), or -1 if the array could not be pinned.
+int luaJ_toprimitivearray(JNIEnv *env, lua_State *L, int index, jarray arr, int kind) {
+    jsize length = (*env)->GetArrayLength(env, arr);
+    if (length == 0) return 0;
+    index = luaJ_absindex(L, index);
+    if (!lua_checkstack(L, 1)) return -1;
+    void *data = (*env)->GetPrimitiveArrayCritical(env, arr, NULL);
+    if (data == NULL) return -1;
+    int failed = 0;
+    switch (kind) {
+        case JAVA_PRIMITIVE_BYTE: FILL_ARRAY(jbyte, lua_tointeger);
+        case JAVA_PRIMITIVE_SHORT: FILL_ARRAY(jshort, lua_tointeger);
+        case JAVA_PRIMITIVE_INT: FILL_ARRAY(jint, lua_tointeger);
+        // lua_Integer is 32-bit on some ABIs, the double keeps 53 bits
+        case JAVA_PRIMITIVE_LONG: FILL_ARRAY(jlong, lua_tonumber);
+        case JAVA_PRIMITIVE_FLOAT: FILL_ARRAY(jfloat, lua_tonumber);
+        case JAVA_PRIMITIVE_DOUBLE: FILL_ARRAY(jdouble, lua_tonumber);
+        default:
+            failed = -1;
+            break;
+    }
+    (*env)->ReleasePrimitiveArrayCritical(env, arr, data, failed == 0 ? 0 : JNI_ABORT);
+    return failed;
+}
+
+#undef FILL_TABLE
+#undef FILL_ARRAY
+
+/* Typed Array API */
+// A primitive array or direct buffer whose elements are read and written from C.
+// The global ref comes first, so that the userdata reads like any other Java array userdata.
+typedef struct {
+    jobject object;
+    void *address; // direct buffer memory, NULL for Java arrays
+    jsize length;
+    int kind;
+} TypedArray;
+
+static const size_t typedArrayElementSizes[] = {
+        0, sizeof(jbyte), sizeof(jshort), sizeof(jint), sizeof(jlong), sizeof(jfloat), sizeof(jdouble)
+};
+
+static int pushTypedArray(JNIEnv *env, lua_State *L, jobject obj, void *address, jsize length, int kind) {
+    jobject global = (*env)->NewGlobalRef(env, obj);
+    if (global) {
+        TypedArray *array = (TypedArray *) lua_newuserdata(L, sizeof(TypedArray));
+        array->object = global;
+        array->address = address;
+        array->length = length;
+        array->kind = kind;
+        luaL_setmetatable(L, JAVA_TYPED_ARRAY_META_REGISTRY);
+        return 1;
+    }
+    return 0;
+}
+
+int luaJ_pushtypedarray(JNIEnv *env, lua_State *L, jarray arr, int kind) {
+    if (kind < JAVA_PRIMITIVE_BYTE || kind > JAVA_PRIMITIVE_DOUBLE) return 0;
+    return pushTypedArray(env, L, arr, NULL, (*env)->GetArrayLength(env, arr), kind);
+}
+
+int luaJ_pushtypedbuffer(JNIEnv *env, lua_State *L, jobject buffer, int kind, jlong byteLength) {
+    if (kind < JAVA_PRIMITIVE_BYTE || kind > JAVA_PRIMITIVE_DOUBLE) return 0;
+    void *address = (*env)->GetDirectBufferAddress(env, buffer);
+    if (address == NULL) return 0;
+    // elements are accessed in place, unaligned wide loads fault on armeabi-v7a
+    if ((uintptr_t) address % typedArrayElementSizes[kind] != 0) return -1;
+    jsize length = (jsize) (byteLength / (jlong) typedArrayElementSizes[kind]);
+    return pushTypedArray(env, L, buffer, address, length, kind);
+}
+
+/* Method API */
+#define CALL_METHOD(NAME) (obj ? (*env)->Call##NAME##MethodA(env, obj, method, args) \
+                               : (*env)->CallStatic##NAME##MethodA(env, clazz, method, args))
+
+jobject luaJ_invokemethod(JNIEnv *env, lua_State *L, jobject obj, jclass clazz, jmethodID method, jlong kinds, int returnKind) {
+    jvalue args[JAVA_MAX_INVOKE_PARAMS];
+    int count = (int) ((uint64_t) kinds >> 60);
+    if (count > JAVA_MAX_INVOKE_PARAMS) return NULL;
+    for (int i = 0; i < count; i++) {
+        int index = i + 1;
+        switch ((int) (((uint64_t) kinds >> (i * 4)) & 0xF)) {
+            case JAVA_KIND_BOOLEAN: args[i].z = (jboolean) lua_toboolean(L, index); break;
+            case JAVA_KIND_CHAR: args[i].c = (jchar) lua_tointeger(L, index); break;
+            case JAVA_PRIMITIVE_BYTE: args[i].b = (jbyte) lua_tointeger(L, index); break;
+            case JAVA_PRIMITIVE_SHORT: args[i].s = (jshort) lua_tointeger(L, index); break;
+            case JAVA_PRIMITIVE_INT: args[i].i = (jint) lua_tointeger(L, index); break;
+            // lua_Integer is 32-bit on some ABIs, the double keeps 53 bits
+            case JAVA_PRIMITIVE_LONG: args[i].j = (jlong) lua_tonumber(L, index); break;
+            case JAVA_PRIMITIVE_FLOAT: args[i].f = (jfloat) lua_tonumber(L, index); break;
+            case JAVA_PRIMITIVE_DOUBLE: args[i].d = (jdouble) lua_tonumber(L, index); break;
+            default: args[i].l = ToString(lua_tostring(L, index)); break;
+        }
+    }
+    jobject result = NULL;
+    switch (returnKind) {
+        case JAVA_KIND_VOID: {
+            if (obj) (*env)->CallVoidMethodA(env, obj, method, args);
+            else (*env)->CallStaticVoidMethodA(env, clazz, method, args);
+            if (!(*env)->ExceptionCheck(env)) lua_pushnil(L);
+            break;
+        }
+        case JAVA_KIND_BOOLEAN: {
+            jboolean value = CALL_METHOD(Boolean);
+            if (!(*env)->ExceptionCheck(env)) lua_pushboolean(L, value);
+            break;
+        }
+        case JAVA_KIND_CHAR: {
+            jchar value = CALL_METHOD(Char);
+            if (!(*env)->ExceptionCheck(env)) lua_pushinteger(L, value);
+            break;
+        }
+        case JAVA_PRIMITIVE_BYTE: {
+            jbyte value = CALL_METHOD(Byte);
+            if (!(*env)->ExceptionCheck(env)) lua_pushinteger(L, value);
+            break;
+        }
+        case JAVA_PRIMITIVE_SHORT: {
+            jshort value = CALL_METHOD(Short);
+            if (!(*env)->ExceptionCheck(env)) lua_pushinteger(L, value);
+            break;
+        }
+        case JAVA_PRIMITIVE_INT: {
+            jint value = CALL_METHOD(Int);
+            if (!(*env)->ExceptionCheck(env)) lua_pushinteger(L, value);
+            break;
+        }
+        case JAVA_PRIMITIVE_LONG: {
+            jlong value = CALL_METHOD(Long);
+            if (!(*env)->ExceptionCheck(env)) lua_pushnumber(L, (lua_Number) value);
+            break;
+        }
+        case JAVA_PRIMITIVE_FLOAT: {
+            jfloat value = CALL_METHOD(Float);
+            if (!(*env)->ExceptionCheck(env)) lua_pushnumber(L, value);
+            break;
+        }
+        case JAVA_PRIMITIVE_DOUBLE: {
+            jdouble value = CALL_METHOD(Double);
+            if (!(*env)->ExceptionCheck(env)) lua_pushnumber(L, value);
+            break;
+        }
+        default:
+            result = CALL_METHOD(Object);
+            break;
+    }
+    for (int i = 0; i < count; i++) {
+        if ((int) (((uint64_t) kinds >> (i * 4)) & 0xF) == JAVA_KIND_OBJECT) DeleteString(args[i].l);
+    }
+    return result;
+}
+
 /* Type API */
 int luaJ_getjavatype(lua_State *L, int index) {
     if (!lua_isuserdata(L, index)) return 0;
@@ -101,7 +331,10 @@ int luaJ_isobject(lua_State *L, int index) {
 }
 
 int luaJ_isarray(lua_State *L, int index) {
-    return luaJ_getjavatype(L, index) == JAVA_TYPE_ARRAY;
+    if (luaJ_getjavatype(L, index) != JAVA_TYPE_ARRAY) return 0;
+    // typed arrays over a direct buffer hold the buffer, not a jarray
+    TypedArray *typed = (TypedArray *) luaL_testudata(L, index, JAVA_TYPED_ARRAY_META_REGISTRY);
+    return typed == NULL || typed->address == NULL;
 }
 
 /* Check API */
@@ -144,7 +377,7 @@ static inline int jfunctionWrapper(lua_State *L) {
     jobject jfunc = luaJ_checkobject(L, lua_upvalueindex(1));
     jint result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                               com_luajava_JuaAPI_jfunctionCall,
-                                              (jlong) L,
+                                              luaJ_getjstate(L),
                                               jfunc);
     return checkOrError(env, L, result);
 }
@@ -213,16 +446,75 @@ static int commonEquals(lua_State *L) {
     return 1;
 }
 
+/* Key Cache */
+// registry[JAVA_KEY_CACHE] = { [name] = userdata(global jstring), [0] = count }
+// Lua strings are interned and the cache table keeps them alive, so a key is only
+// converted to a Java string the first time it is used
+#define JAVA_KEY_CACHE_LIMIT 4096
+
+static int keyCacheGC(lua_State *L) {
+    jstring *key = (jstring *) lua_touserdata(L, 1);
+    if (key && *key) {
+        JNIEnv *env = getJNIEnv(L);
+        (*env)->DeleteGlobalRef(env, *key);
+        *key = NULL;
+    }
+    return 0;
+}
+
+// Returns the cached jstring of the string at index, or a new local reference (*isLocal = 1)
+static jstring toKey(JNIEnv *env, lua_State *L, int index, int *isLocal) {
+    index = luaJ_absindex(L, index);
+    *isLocal = 0;
+    lua_getfield(L, LUA_REGISTRYINDEX, JAVA_KEY_CACHE);
+    if (!lua_istable(L, -1)) {
+        lua_pop(L, 1);
+        *isLocal = 1;
+        return ToString(lua_tostring(L, index));
+    }
+    lua_pushvalue(L, index);
+    lua_rawget(L, -2);
+    jstring *cached = (jstring *) lua_touserdata(L, -1);
+    if (cached && *cached) {
+        lua_pop(L, 2);
+        return *cached;
+    }
+    lua_pop(L, 1);
+    jstring key = ToString(lua_tostring(L, index));
+    lua_rawgeti(L, -1, 0);
+    int count = (int) lua_tointeger(L, -1);
+    lua_pop(L, 1);
+    jstring global = (key && count < JAVA_KEY_CACHE_LIMIT) ? (*env)->NewGlobalRef(env, key) : NULL;
+    if (global) {
+        lua_pushvalue(L, index);
+        jstring *userdata = (jstring *) lua_newuserdata(L, sizeof(jstring));
+        *userdata = global;
+        luaL_setmetatable(L, JAVA_KEY_META_REGISTRY);
+        lua_rawset(L, -3);
+        lua_pushinteger(L, count + 1);
+        lua_rawseti(L, -2, 0);
+        DeleteString(key);
+        key = global;
+    } else {
+        *isLocal = 1;
+    }
+    lua_pop(L, 1);
+    return key;
+}
+
+#define ReleaseKey(j_string, isLocal) if (isLocal) DeleteString(j_string)
+
 /* Class Metatable */
 static int classIndex(lua_State *L) {
     jclass clazz = luaJ_checkclass(L, 1);
-    const char *name = luaL_checkstring(L, 2);
+    luaL_checkstring(L, 2);
     JNIEnv *env = getJNIEnv(L);
-    jstring fieldName = ToString(name);
+    int isLocal;
+    jstring fieldName = toKey(env, L, 2, &isLocal);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jclassIndex,
-                                             (jlong) L, clazz, fieldName);
-    DeleteString(fieldName);
+                                             luaJ_getjstate(L), clazz, fieldName);
+    ReleaseKey(fieldName, isLocal);
     return checkOrError(env, L, result);
 }
 
@@ -241,7 +533,7 @@ static int classNewIndex(lua_State *L) {
     jstring fieldName = ToString(name);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jclassNewIndex,
-                                             (jlong) L, clazz, fieldName);
+                                             luaJ_getjstate(L), clazz, fieldName);
     DeleteString(fieldName);
     return checkOrError(env, L, result);
 }
@@ -252,7 +544,7 @@ static int classNew(lua_State *L) {
     int top = lua_gettop(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jclassNew,
-                                             (jlong) L, clazz);
+                                             luaJ_getjstate(L), clazz);
     return checkOrError(env, L, result);
 }
 
@@ -300,12 +592,13 @@ static int objectGC(lua_State *L) {
 static int objectIndex(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     jobject object = luaJ_checkobject(L, 1);
-    const char *name = luaL_checkstring(L, 2);
-    jstring methodName = ToString(name);
+    luaL_checkstring(L, 2);
+    int isLocal;
+    jstring methodName = toKey(env, L, 2, &isLocal);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jobjectIndex,
-                                             (jlong) L, object, methodName);
-    DeleteString(methodName);
+                                             luaJ_getjstate(L), object, methodName);
+    ReleaseKey(methodName, isLocal);
     return checkOrError(env, L, result);
 }
 
@@ -317,7 +610,7 @@ static int objectNewIndex(lua_State *L) {
     jstring fieldName = ToString(name);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jobjectNewIndex,
-                                             (jlong) L, object, fieldName);
+                                             luaJ_getjstate(L), object, fieldName);
     DeleteString(fieldName);
     return checkOrError(env, L, result);
 }
@@ -338,7 +631,7 @@ static int objectLength(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jobjectLength,
-                                             (jlong) L, object);
+                                             luaJ_getjstate(L), object);
     return checkOrError(env, L, result);
 }
 
@@ -377,7 +670,7 @@ static int arrayIndex(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jarrayIndex,
-                                             (jlong) L, array);
+                                             luaJ_getjstate(L), array);
     return checkOrError(env, L, result);
 }
 
@@ -387,17 +680,134 @@ static int arrayNewIndex(lua_State *L) {
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jarrayNewIndex,
-                                             (jlong) L, array);
+                                             luaJ_getjstate(L), array);
     return checkOrError(env, L, result);
 }
 
+/* Typed Array Metatable */
+#define GET_ELEMENT(TYPE, NAME) { \
+        TYPE value; \
+        if (array->address) { \
+            value = ((TYPE *) array->address)[index]; \
+        } else { \
+            (*env)->Get##NAME##ArrayRegion(env, array->object, (jsize) index, 1, &value); \
+        } \
+        lua_pushnumber(L, (lua_Number) value); \
+    } break
+
+#define SET_ELEMENT(TYPE, NAME, CONVERT) { \
+        TYPE value = (TYPE) CONVERT(L, valueIndex); \
+        if (array->address) { \
+            ((TYPE *) array->address)[index] = value; \
+        } else { \
+            (*env)->Set##NAME##ArrayRegion(env, array->object, (jsize) index, 1, &value); \
+        } \
+    } break
+
+static lua_Integer checkTypedIndex(lua_State *L, TypedArray *array, int arg) {
+    lua_Integer index = lua_tointeger(L, arg);
+    if (index < 0 || index >= array->length) {
+        luaL_error(L, "index %d out of bounds (length %d)", (int) index, (int) array->length);
+    }
+    return index;
+}
+
+static void pushTypedElement(JNIEnv *env, lua_State *L, TypedArray *array, lua_Integer index) {
+    switch (array->kind) {
+        case JAVA_PRIMITIVE_BYTE: GET_ELEMENT(jbyte, Byte);
+        case JAVA_PRIMITIVE_SHORT: GET_ELEMENT(jshort, Short);
+        case JAVA_PRIMITIVE_INT: GET_ELEMENT(jint, Int);
+        case JAVA_PRIMITIVE_LONG: GET_ELEMENT(jlong, Long);
+        case JAVA_PRIMITIVE_FLOAT: GET_ELEMENT(jfloat, Float);
+        case JAVA_PRIMITIVE_DOUBLE: GET_ELEMENT(jdouble, Double);
+        default:
+            lua_pushnil(L);
+            break;
+    }
+}
+
+static int typedArrayGC(lua_State *L) {
+    TypedArray *array = (TypedArray *) luaL_checkudata(L, 1, JAVA_TYPED_ARRAY_META_REGISTRY);
+    if (array->object) {
+        JNIEnv *env = getJNIEnv(L);
+        (*env)->DeleteGlobalRef(env, array->object);
+        array->object = NULL;
+        array->address = NULL;
+        array->length = 0;
+    }
+    return 0;
+}
+
+static int typedArrayLength(lua_State *L) {
+    TypedArray *array = (TypedArray *) luaL_checkudata(L, 1, JAVA_TYPED_ARRAY_META_REGISTRY);
+    lua_pushinteger(L, array->length);
+    return 1;
+}
+
+static int typedArrayIndex(lua_State *L) {
+    TypedArray *array = (TypedArray *) luaL_checkudata(L, 1, JAVA_TYPED_ARRAY_META_REGISTRY);
+    if (lua_type(L, 2) != LUA_TNUMBER) {
+        // keep the conversions of the generic array path for other keys
+        if (array->address == NULL) return arrayIndex(L);
+        return luaL_typerror(L, 2, "number");
+    }
+    lua_Integer index = checkTypedIndex(L, array, 2);
+    pushTypedElement(getJNIEnv(L), L, array, index);
+    return 1;
+}
+
+static int typedArrayNewIndex(lua_State *L) {
+    TypedArray *array = (TypedArray *) luaL_checkudata(L, 1, JAVA_TYPED_ARRAY_META_REGISTRY);
+    if (lua_type(L, 2) != LUA_TNUMBER || lua_type(L, 3) != LUA_TNUMBER) {
+        if (array->address == NULL) return arrayNewIndex(L);
+        return luaL_typerror(L, lua_type(L, 2) != LUA_TNUMBER ? 2 : 3, "number");
+    }
+    lua_Integer index = checkTypedIndex(L, array, 2);
+    int valueIndex = 3;
+    JNIEnv *env = getJNIEnv(L);
+    switch (array->kind) {
+        case JAVA_PRIMITIVE_BYTE: SET_ELEMENT(jbyte, Byte, lua_tointeger);
+        case JAVA_PRIMITIVE_SHORT: SET_ELEMENT(jshort, Short, lua_tointeger);
+        case JAVA_PRIMITIVE_INT: SET_ELEMENT(jint, Int, lua_tointeger);
+        // lua_Integer is 32-bit on some ABIs, the double keeps 53 bits
+        case JAVA_PRIMITIVE_LONG: SET_ELEMENT(jlong, Long, lua_tonumber);
+        case JAVA_PRIMITIVE_FLOAT: SET_ELEMENT(jfloat, Float, lua_tonumber);
+        case JAVA_PRIMITIVE_DOUBLE: SET_ELEMENT(jdouble, Double, lua_tonumber);
+        default:
+            break;
+    }
+    return 0;
+}
+
+#undef GET_ELEMENT
+#undef SET_ELEMENT
+
+static int typedArrayIpairsIterator(lua_State *L) {
+    TypedArray *array = (TypedArray *) luaL_checkudata(L, 1, JAVA_TYPED_ARRAY_META_REGISTRY);
+    lua_Integer index = luaL_checkinteger(L, 2) + 1;
+    if (index < 0 || index >= array->length) {
+        return 0;
+    }
+    lua_pushinteger(L, index);
+    pushTypedElement(getJNIEnv(L), L, array, index);
+    return 2;
+}
+
+static int typedArrayIpairs(lua_State *L) {
+    luaL_checkudata(L, 1, JAVA_TYPED_ARRAY_META_REGISTRY);
+    lua_pushcfunction(L, &typedArrayIpairsIterator);
+    lua_pushvalue(L, 1);
+    lua_pushinteger(L, -1);
+    return 3;
+}
+
 static int arrayIpairsIterator(lua_State *L) {
     jarray array = luaJ_checkarray(L, 1);
     luaL_checkany(L, 2);
     JNIEnv *env = getJNIEnv(L);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
                                              com_luajava_JuaAPI_jarrayIpairsIterator,
-                                             (jlong) L, array);
+                                             luaJ_getjstate(L), array);
     return checkOrError(env, L, result);
 }
 
@@ -409,6 +819,206 @@ static int arrayIpairs(lua_State *L) {
     return 3;
 }
 
+/* View Table */
+// A lazy table view of a Java List or Map. The view table itself stays empty, so that every read and
+// write goes through its metatable; entries are converted on first read and cached in a side table.
+// Each view has its own metatable, holding the metamethods copied from the template and:
+#define VIEW_OBJECT 1 // the com.luajava.LuaView backing the view
+#define VIEW_CACHE  2 // converted or assigned entries, removed ones hold viewTombstone
+#define VIEW_LENGTH 3 // the length of list views, nil for map views
+static const char viewTombstone = 0;
+
+static int viewIndex(lua_State *L);
+
+// Pushes the metatable of the view at index, returns 0 (pushing nothing) if it is not a view
+static int getViewMetatable(lua_State *L, int index) {
+    if (!lua_istable(L, index) || !lua_getmetatable(L, index)) return 0;
+    lua_pushliteral(L, "__index");
+    lua_rawget(L, -2);
+    int isView = lua_tocfunction(L, -1) == &viewIndex;
+    lua_pop(L, isView ? 1 : 2);
+    return isView;
+}
+
+static int viewIndex(lua_State *L) {
+    lua_settop(L, 2);
+    if (lua_isnil(L, 2) || (lua_type(L, 2) == LUA_TNUMBER && lua_tonumber(L, 2) != lua_tonumber(L, 2))) {
+        return 0; // nil or NaN, never a key
+    }
+    lua_getmetatable(L, 1); // 3
+    lua_rawgeti(L, 3, VIEW_CACHE); // 4
+    lua_pushvalue(L, 2);
+    lua_rawget(L, 4);
+    if (!lua_isnil(L, -1)) {
+        if (lua_touserdata(L, -1) == &viewTombstone) lua_pushnil(L);
+        return 1;
+    }
+    lua_pop(L, 1);
+    lua_rawgeti(L, 3, VIEW_OBJECT);
+    jobject view = luaJ_toobject(L, -1);
+    lua_pop(L, 1); // still referenced by the metatable
+    JNIEnv *env = getJNIEnv(L);
+    int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
+                                             com_luajava_JuaAPI_jviewIndex,
+                                             luaJ_getjstate(L), view);
+    if (checkOrError(env, L, result) == 0) return 0;
+    lua_pushvalue(L, 2);
+    lua_pushvalue(L, -2);
+    lua_rawset(L, 4);
+    return 1;
+}
+
+static int viewNewIndex(lua_State *L) {
+    lua_settop(L, 3);
+    if (lua_isnil(L, 2)) return luaL_error(L, "table index is nil");
+    lua_getmetatable(L, 1); // 4
+    lua_rawgeti(L, 4, VIEW_CACHE); // 5
+    lua_pushvalue(L, 2);
+    if (lua_isnil(L, 3)) {
+        lua_pushlightuserdata(L, (void *) &viewTombstone);
+    } else {
+        lua_pushvalue(L, 3);
+    }
+    lua_rawset(L, 5);
+    // lists keep track of their border, as t[#t + 1] = v and t[#t] = nil would on a table
+    lua_rawgeti(L, 4, VIEW_LENGTH);
+    if (lua_type(L, -1) == LUA_TNUMBER && lua_type(L, 2) == LUA_TNUMBER) {
+        lua_Number length = lua_tonumber(L, -1);
+        lua_Number key = lua_tonumber(L, 2);
+        if (!lua_isnil(L, 3) && key == length + 1) {
+            length++;
+        } else if (lua_isnil(L, 3) && key == length) {
+            length--;
+        }
+        lua_pushnumber(L, length);
+        lua_rawseti(L, 4, VIEW_LENGTH);
+    }
+    return 0;
+}
+
+// Turns the view at index 1 into the plain table a FULL conversion would have produced
+static int viewDetach(lua_State *L) {
+    lua_settop(L, 1);
+    if (!getViewMetatable(L, 1)) return 0; // 2
+    lua_rawgeti(L, 2, VIEW_CACHE); // 3
+    lua_rawgeti(L, 2, VIEW_OBJECT); // 4
+    jobject view = luaJ_toobject(L, 4);
+    JNIEnv *env = getJNIEnv(L);
+    int result = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI,
+                                             com_luajava_JuaAPI_jviewMaterialize,
+                                             luaJ_getjstate(L), view);
+    checkOrError(env, L, result); // 5, all entries converted from Java
+    lua_pushnil(L);
+    while (lua_next(L, 5)) {
+        // entries assigned from Lua win over the Java ones
+        lua_pushvalue(L, -2);
+        lua_rawget(L, 3);
+        int assigned = !lua_isnil(L, -1);
+        lua_pop(L, 1);
+        if (assigned) {
+            lua_pop(L, 1);
+        } else {
+            lua_pushvalue(L, -2);
+            lua_insert(L, -2);
+            lua_rawset(L, 1);
+        }
+    }
+    lua_pushnil(L);
+    while (lua_next(L, 3)) {
+        if (lua_touserdata(L, -1) == &viewTombstone) {
+            lua_pop(L, 1);
+        } else {
+            lua_pushvalue(L, -2);
+            lua_insert(L, -2);
+            lua_rawset(L, 1);
+        }
+    }
+    lua_pushnil(L);
+    lua_setmetatable(L, 1);
+    return 0;
+}
+
+static int viewLength(lua_State *L) {
+    lua_settop(L, 1);
+    lua_getmetatable(L, 1);
+    lua_rawgeti(L, 2, VIEW_LENGTH);
+    if (lua_type(L, -1) == LUA_TNUMBER) return 1;
+    lua_settop(L, 1);
+    viewDetach(L);
+    lua_pushinteger(L, (lua_Integer) lua_objlen(L, 1));
+    return 1;
+}
+
+static int viewNext(lua_State *L) {
+    luaL_checktype(L, 1, LUA_TTABLE);
+    lua_settop(L, 2);
+    if (lua_next(L, 1)) return 2;
+    lua_pushnil(L);
+    return 1;
+}
+
+static int viewPairs(lua_State *L) {
+    lua_settop(L, 1);
+    viewDetach(L);
+    lua_settop(L, 1);
+    lua_pushcfunction(L, &viewNext);
+    lua_insert(L, 1);
+    lua_pushnil(L);
+    return 3;
+}
+
+static int viewIpairsIterator(lua_State *L) {
+    lua_Integer index = luaL_checkinteger(L, 2) + 1;
+    lua_pushinteger(L, index);
+    lua_pushinteger(L, index);
+    lua_gettable(L, 1); // converted lazily through __index
+    if (lua_isnil(L, -1)) return 0;
+    return 2;
+}
+
+static int viewIpairs(lua_State *L) {
+    luaL_checktype(L, 1, LUA_TTABLE);
+    lua_pushcfunction(L, &viewIpairsIterator);
+    lua_pushvalue(L, 1);
+    lua_pushinteger(L, 0);
+    return 3;
+}
+
+int luaJ_pushview(JNIEnv *env, lua_State *L, jobject view, int length) {
+    lua_newtable(L);
+    lua_createtable(L, 3, 6);
+    luaL_getmetatable(L, JAVA_VIEW_META_REGISTRY);
+    lua_pushnil(L);
+    while (lua_next(L, -2)) {
+        lua_pushvalue(L, -2);
+        lua_insert(L, -2);
+        lua_rawset(L, -5);
+    }
+    lua_pop(L, 1);
+    if (!luaJ_pushobject(env, L, view)) {
+        lua_pop(L, 2);
+        return 0;
+    }
+    lua_rawseti(L, -2, VIEW_OBJECT);
+    lua_newtable(L);
+    lua_rawseti(L, -2, VIEW_CACHE);
+    if (length >= 0) {
+        lua_pushinteger(L, length);
+        lua_rawseti(L, -2, VIEW_LENGTH);
+    }
+    lua_setmetatable(L, -2);
+    return 1;
+}
+
+int luaJ_materializeview(lua_State *L, int index) {
+    index = luaJ_absindex(L, index);
+    if (!getViewMetatable(L, index)) return 0;
+    lua_pop(L, 1);
+    lua_pushcfunction(L, &viewDetach);
+    lua_pushvalue(L, index);
+    return lua_pcall(L, 1, 0, 0);
+}
+
 /* Common Metatable */
 bindMetaname(__index)
 bindMetaname(__newindex)
@@ -488,5 +1098,41 @@ void initMetaRegistry(lua_State *L) {
         bindMetatable(__concat, &commonConcat); // concat
         bindMetatable(__eq, &commonEquals); // equal
     }
+    lua_pop(L, 1);
+    // Java Typed Array
+    if (luaL_newmetatable(L, JAVA_TYPED_ARRAY_META_REGISTRY) == 1) {
+        lua_pushvalue(L, -2);
+        lua_pushinteger(L, JAVA_TYPE_ARRAY);
+        lua_rawset(L, -3);
+        bindMetatable(__gc, &typedArrayGC); // gc
+        bindMetatable(__tostring, &arrayToString); // tostring
+        bindMetatable(__len, &typedArrayLength); // length
+        bindMetatable(__index, &typedArrayIndex); // index
+        bindMetatable(__newindex, &typedArrayNewIndex); // newindex
+        bindMetatable(__ipairs, &typedArrayIpairs); // ipairs
+        bindMetatable(__pairs, &typedArrayIpairs); // pairs
+        bindMetatable(__concat, &commonConcat); // concat
+        bindMetatable(__eq, &commonEquals); // equal
+    }
     lua_pop(L, 2);
+    // View Table, copied into the metatable of each view
+    if (luaL_newmetatable(L, JAVA_VIEW_META_REGISTRY) == 1) {
+        bindMetatable(__index, &viewIndex); // index
+        bindMetatable(__newindex, &viewNewIndex); // newindex
+        bindMetatable(__len, &viewLength); // length
+        bindMetatable(__pairs, &viewPairs); // pairs
+        bindMetatable(__ipairs, &viewIpairs); // ipairs
+    }
+    lua_pop(L, 1);
+    // Key Cache
+    if (luaL_newmetatable(L, JAVA_KEY_META_REGISTRY) == 1) {
+        bindMetatable(__gc, &keyCacheGC); // gc
+    }
+    lua_pop(L, 1);
+    lua_getfield(L, LUA_REGISTRYINDEX, JAVA_KEY_CACHE);
+    if (!lua_istable(L, -1)) {
+        lua_newtable(L);
+        lua_setfield(L, LUA_REGISTRYINDEX, JAVA_KEY_CACHE);
+    }
+    lua_pop(L, 1);
 }
\ No newline at end of file
@@ -8,20 +8,50 @@
 extern const char JAVA_CLASS_META_REGISTRY[];
 extern const char JAVA_OBJECT_META_REGISTRY[];
 extern const char JAVA_ARRAY_META_REGISTRY[];
+extern const char JAVA_TYPED_ARRAY_META_REGISTRY[];
+extern const char JAVA_VIEW_META_REGISTRY[];
 
 extern const char JAVA_OBJECT_ID[];
 #define JAVA_TYPE_OBJECT  1
 #define JAVA_TYPE_CLASS   2
 #define JAVA_TYPE_ARRAY   3
 
+// element types of the primitive arrays converted in bulk, must match Lua.java
+#define JAVA_PRIMITIVE_BYTE   1
+#define JAVA_PRIMITIVE_SHORT  2
+#define JAVA_PRIMITIVE_INT    3
+#define JAVA_PRIMITIVE_LONG   4
+#define JAVA_PRIMITIVE_FLOAT  5
+#define JAVA_PRIMITIVE_DOUBLE 6
+// Parameter and return kinds of luaJ_invokemethod, after the primitive array kinds
+#define JAVA_KIND_VOID        0
+#define JAVA_KIND_BOOLEAN     7
+#define JAVA_KIND_CHAR        8
+#define JAVA_KIND_OBJECT      9
+#define JAVA_MAX_INVOKE_PARAMS 15
+
 void initMetaRegistry(lua_State *L);
 
 LUALIB_API lua_State *luaJ_newstate();
 LUALIB_API int luaJ_initloader(lua_State* L);
 
+LUALIB_API void luaJ_setjstate(JNIEnv *env, lua_State *L, jobject state);
+LUALIB_API jobject luaJ_getjstate(lua_State *L);
+
 LUALIB_API int luaJ_pushclass(JNIEnv *env, lua_State *L, jclass clazz);
 LUALIB_API int luaJ_pushobject(JNIEnv *env, lua_State *L, jobject obj);
 LUALIB_API int luaJ_pusharray(JNIEnv *env, lua_State *L, jarray arr);
+LUALIB_API int luaJ_pushprimitivearray(JNIEnv *env, lua_State *L, jarray arr, int kind);
+LUALIB_API int luaJ_toprimitivearray(JNIEnv *env, lua_State *L, int index, jarray arr, int kind);
+LUALIB_API int luaJ_pushtypedarray(JNIEnv *env, lua_State *L, jarray arr, int kind);
+// Returns 1 on success, 0 if the buffer memory is not accessible and -1 if it is not aligned to the element size
+LUALIB_API int luaJ_pushtypedbuffer(JNIEnv *env, lua_State *L, jobject buffer, int kind, jlong byteLength);
+// Calls a method with arguments read from the stack slots 1..n, kinds packed four bits each and n in the top four bits.
+// Primitive and void results are pushed and NULL is returned, object results are returned without pushing anything.
+// Nothing is pushed if the method throws, the exception is left pending.
+LUALIB_API jobject luaJ_invokemethod(JNIEnv *env, lua_State *L, jobject obj, jclass clazz, jmethodID method, jlong kinds, int returnKind);
+LUALIB_API int luaJ_pushview(JNIEnv *env, lua_State *L, jobject view, int length);
+LUALIB_API int luaJ_materializeview(lua_State *L, int index);
 LUALIB_API void luaJ_pushfunction(JNIEnv *env, lua_State *L, jobject func);
 LUALIB_API void luaJ_pushcclosure(JNIEnv *env, lua_State *L, jobject func, int n);
 
@@ -1,6 +1,7 @@
 #include <string.h>
 #include "jnihelper.h"
 #include "luajavaloader.h"
+#include "luajavacore.h"
 #include "luajavaapi.h"
 #include "luareg.h"
 
@@ -10,7 +11,7 @@ static int jmoduleLoad(lua_State *L) {
     const char *name = luaL_checkstring(L, 1);
     jstring moduleName = ToString(name);
     int ret = (*env)->CallStaticIntMethod(env, com_luajava_JuaAPI, com_luajava_JuaAPI_jmoduleLoad,
-                                          (jlong) L, moduleName);
+                                          luaJ_getjstate(L), moduleName);
     DeleteString(moduleName);
     if((*env)->ExceptionOccurred(env)) {
         (*env)->ExceptionClear(env);
@@ -7,6 +7,7 @@
 #include "luajavacore.h"
 #include "luajavaapi.h"
 #include "luacomp.h"
+#include "luacopy.h"
 #include "luajava.h"
 
 #define L ((lua_State *) ptr)
@@ -26,6 +27,10 @@ JNIWRAP(jint, luaJ_1initloader, jlong ptr) {
     return luaJ_initloader(L);
 }
 
+JNIWRAP(void, luaJ_1setstate, jlong ptr, jobject state) {
+    luaJ_setjstate(env, L, state);
+}
+
 /* Push API */
 JNIWRAP(void, luaJ_1pushobject, jlong ptr, jobject obj) {
     luaJ_pushobject(env, L, obj);
@@ -39,6 +44,39 @@ JNIWRAP(void, luaJ_1pusharray, jlong ptr, jobject array) {
     luaJ_pusharray(env, L, array);
 }
 
+JNIWRAP(jint, luaJ_1pushprimitivearray, jlong ptr, jobject array, jint kind) {
+    return luaJ_pushprimitivearray(env, L, array, kind);
+}
+
+JNIWRAP(jint, luaJ_1toprimitivearray, jlong ptr, jint index, jobject array, jint kind) {
+    return luaJ_toprimitivearray(env, L, index, array, kind);
+}
+
+JNIWRAP(jint, luaJ_1pushtypedarray, jlong ptr, jobject array, jint kind) {
+    return luaJ_pushtypedarray(env, L, array, kind);
+}
+
+JNIWRAP(jint, luaJ_1pushtypedbuffer, jlong ptr, jobject buffer, jint kind, jlong byteLength) {
+    return luaJ_pushtypedbuffer(env, L, buffer, kind, byteLength);
+}
+
+/* Method API */
+JNIWRAP(jlong, luaJ_1getmethodid, jobject method) {
+    return (jlong) (*env)->FromReflectedMethod(env, method);
+}
+
+JNIWRAP(jobject, luaJ_1invokemethod, jlong ptr, jobject obj, jclass clazz, jlong method, jlong kinds, jint returnKind) {
+    return luaJ_invokemethod(env, L, obj, clazz, (jmethodID) method, kinds, returnKind);
+}
+
+JNIWRAP(jint, luaJ_1pushview, jlong ptr, jobject view, jint length) {
+    return luaJ_pushview(env, L, view, length);
+}
+
+JNIWRAP(jint, luaJ_1materializeview, jlong ptr, jint index) {
+    return luaJ_materializeview(L, index);
+}
+
 JNIWRAP(void, luaJ_1pushfunction, jlong ptr, jobject func) {
     luaJ_pushfunction(env, L, func);
 }
@@ -47,11 +85,19 @@ JNIWRAP(void, luaJ_1pushcclosure, jlong ptr, jobject func, jint n) {
     luaJ_pushcclosure(env, L, func, n);
 }
 
-JNIWRAP(void, luaJ_1pushbuffer, jlong ptr, jobject obj_buffer, jint size) {
-    luaJ_pushbuffer(env, L, obj_buffer);
+JNIWRAP(void, luaJ_1pushbuffer, jlong ptr, jobject obj_buffer, jint offset, jint size) {
+    luaJ_pushbuffer(env, L, obj_buffer, offset, size);
+}
+
+JNIWRAP(void, luaJ_1pushbytes, jlong ptr, jbyteArray bytes, jint offset, jint length) {
+    luaJ_pushbytes(env, L, bytes, offset, length);
 }
 
 /* String API */
+JNIWRAP(jbyteArray, luaJ_1tobytes, jlong ptr, jint index) {
+    return luaJ_tobytes(env, L, (int) index);
+}
+
 JNIWRAP(jstring, luaJ_1tostring, jlong ptr, jint index) {
     return ToString(luaJ_tostring(L, index));
 }
@@ -106,10 +152,9 @@ JNIWRAP(jint, luaJ_1compare, jlong ptr, jint idx1, jint idx2, jint opc) {
     return luaJ_compare(L, idx1, idx2, opc);
 }
 
-JNIWRAP(jlong, luaJ_1newthread, jlong ptr, jint lid) {
-    lua_State *l = lua_newthread(L);
-    luaopen_luajava(l);
-    return (jlong) l;
+// Threads share the globals and registry of L, luajava is already reachable from them
+JNIWRAP(jlong, luaJ_1newthread, jlong ptr) {
+    return (jlong) lua_newthread(L);
 }
 
 JNIWRAP(jint, luaJ_1invokespecial, jlong ptr, jclass clazz, jstring obj_method, jstring obj_sig,
@@ -132,6 +177,10 @@ JNIWRAP(jint, luaJ_1copy, jlong ptr, jlong ptr1, jint index) {
     return luaJ_copy(L, L1, index);
 }
 
+JNIWRAP(jint, luaJ_1share, jlong ptr, jint index) {
+    return luaJ_share(L, index);
+}
+
 JNIWRAP(jint, luaJ_1xpcall, jlong ptr, jint nargs, jint nresults) {
     return luaJ_xpcall(L, nargs, nresults);
 }
@@ -170,6 +219,48 @@ JNIWRAP(jint, luaJ_1refsafe, jlong ptr, jint idx) {
     return luaJ_refsafe(L, idx);
 }
 
+#define SNAPSHOT_CHUNK 32
+
+// Reads `count` stack slots starting at `idx` in a single call:
+// types[i] is the lua type, numbers[i] the number (or 0/1 for booleans), refs[i] the registry ref for other values
+JNIWRAP(jint, luaJ_1snapshot, jlong ptr, jint idx, jint count, jintArray j_types, jdoubleArray j_numbers, jintArray j_refs) {
+    lua_State *lua = L;
+    int start = luaJ_absindex(lua, idx);
+    jint types[SNAPSHOT_CHUNK];
+    jdouble numbers[SNAPSHOT_CHUNK];
+    jint refs[SNAPSHOT_CHUNK];
+    for (jint offset = 0; offset < count; offset += SNAPSHOT_CHUNK) {
+        jint n = count - offset < SNAPSHOT_CHUNK ? count - offset : SNAPSHOT_CHUNK;
+        for (jint i = 0; i < n; i++) {
+            int index = start + offset + i;
+            int type = lua_type(lua, index);
+            types[i] = type;
+            numbers[i] = 0;
+            refs[i] = LUA_NOREF;
+            switch (type) {
+                case LUA_TNONE:
+                case LUA_TNIL:
+                    break;
+                case LUA_TBOOLEAN:
+                    numbers[i] = lua_toboolean(lua, index);
+                    break;
+                case LUA_TNUMBER:
+                    numbers[i] = lua_tonumber(lua, index);
+                    break;
+                default:
+                    refs[i] = luaJ_refsafe(lua, index);
+                    break;
+            }
+        }
+        (*env)->SetIntArrayRegion(env, j_types, offset, n, types);
+        (*env)->SetDoubleArrayRegion(env, j_numbers, offset, n, numbers);
+        (*env)->SetIntArrayRegion(env, j_refs, offset, n, refs);
+    }
+    return count;
+}
+
+#undef SNAPSHOT_CHUNK
+
 JNIWRAP(void, luaJ_1refGet, jlong ptr, jint ref) {
     luaJ_refGet(L, ref);
 }
@@ -178,6 +269,23 @@ JNIWRAP(void, luaJ_1unRef, jlong ptr, jint ref) {
     luaJ_unRef(L, ref);
 }
 
+#define UNREF_CHUNK 64
+
+// Releases `count` registry refs in a single call
+JNIWRAP(void, luaJ_1unRefs, jlong ptr, jintArray j_refs, jint count) {
+    lua_State *lua = L;
+    jint refs[UNREF_CHUNK];
+    for (jint offset = 0; offset < count; offset += UNREF_CHUNK) {
+        jint n = count - offset < UNREF_CHUNK ? count - offset : UNREF_CHUNK;
+        (*env)->GetIntArrayRegion(env, j_refs, offset, n, refs);
+        for (jint i = 0; i < n; i++) {
+            luaJ_unRef(lua, refs[i]);
+        }
+    }
+}
+
+#undef UNREF_CHUNK
+
 JNIWRAP(jint, luaJ_1ref, jlong ptr) {
     return luaJ_ref(L);
 }
@@ -239,10 +347,11 @@ JNIWRAP(jlong, luaJ_1refGetPointer, jlong ptr, jint ref) {
     return result;
 }
 
-JNIWRAP(void, luaJ_1refCopyTo, jlong ptr, jlong ptr1, jint ref) {
+JNIWRAP(jint, luaJ_1refCopyTo, jlong ptr, jlong ptr1, jint ref) {
     luaJ_refGet(L, ref);
-    luaJ_copy(L, L1, ref);
+    int result = luaJ_copy(L, L1, -1);
     lua_pop(L, 1);
+    return result;
 }
 
 JNIWRAP(jint, luaJ_1loadstringbuffer, jlong ptr, jbyteArray buff, jlong sz, jstring name) {
@@ -12,6 +12,8 @@ import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.PersistableBundle;
 import android.os.StrictMode;
 import android.view.ContextMenu;
@@ -33,6 +35,7 @@ import androidx.annotation.NonNull;
 import com.luajava.Lua;
 import com.luajava.LuaException;
 import com.luajava.LuaHandler;
+import com.luajava.LuaScheduler;
 import com.luajava.value.referable.LuaFunction;
 import com.nexlua.module.LuaModule;
 import com.nexlua.utils.SingleObject;
@@ -50,8 +53,9 @@ public class LuaActivity extends Activity implements LuaBroadcastReceiver.OnRece
     protected LuaBroadcastReceiver mReceiver;
     protected final LuaApplication app = LuaApplication.getInstance();
     protected final LuaConfig config = app.getConfig();
-    protected final Lua L = new Lua(this);
+    protected Lua L;
     protected LuaPrint print;
+    protected LuaScheduler scheduler;
     protected String luaPath, luaDir, luaLpath, luaCpath;
     protected Bundle savedInstanceState;
     protected LuaIntent intent;
@@ -91,9 +95,18 @@ public class LuaActivity extends Activity implements LuaBroadcastReceiver.OnRece
     }
 
     public void initLua() throws LuaException {
-        L.openLibraries();
-        L.openLibrary("luajava");
-        L.setExternalLoader(config);
+        // 从状态池取出已打开标准库的状态
+        L = app.getStatePool().acquire(this);
+        Handler handler = new Handler(Looper.getMainLooper());
+        if (config.isAsyncProxies()) {
+            // 其他线程调用返回 void 的接口方法时不再等待主线程
+            L.setProxyExecutor(handler::post, config.isCoalesceProxies(), handler.getLooper().getThread());
+        }
+        if (config.isSchedulerEnabled()) {
+            // async / await, 协程在主线程恢复
+            scheduler = new LuaScheduler(L, handler::post);
+            scheduler.install();
+        }
         luaCpath = config.getLuaCpath(luaDir);
         luaLpath = config.getLuaLpath(luaDir);
         // package.path 和 cpath
@@ -298,8 +311,8 @@ public class LuaActivity extends Activity implements LuaBroadcastReceiver.OnRece
         if (mReceiver != null) unregisterReceiver(mReceiver);
         onLuaEvent(mOnDestroy);
         System.gc();
-        L.gc();
-        L.close();
+        if (scheduler != null) scheduler.close();
+        if (L != null) app.getStatePool().release(L);
         super.onDestroy();
     }
 
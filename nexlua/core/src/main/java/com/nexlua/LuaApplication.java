@@ -10,11 +10,13 @@ import androidx.annotation.Nullable;
 
 import com.luajava.Lua;
 import com.luajava.LuaException;
+import com.luajava.util.ClassUtils;
 import com.luajava.value.referable.LuaFunction;
 import com.nexlua.module.LuaModule;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class LuaApplication extends Application implements LuaContext {
     protected static LuaApplication mApplication;
@@ -22,6 +24,8 @@ public class LuaApplication extends Application implements LuaContext {
     protected LuaFunction mOnTerminate, mOnLowMemory, mOnTrimMemory, mOnConfigurationChanged;
     protected final Lua L = new Lua(this);
     protected LuaConfig config;
+    protected LuaStatePool statePool;
+    protected LuaExecutor executor;
     protected LuaModule module;
     protected Toast mToast;
     protected StringBuilder mToastBuilder;
@@ -44,6 +48,8 @@ public class LuaApplication extends Application implements LuaContext {
         config.baseLpath += luaLibDir + "/?.lua;" + luaLibDir + "/lua/?.lua;" + luaLibDir + "/?/init.lua;";
         luaCpath = config.getLuaCpath(luaDir);
         luaLpath = config.getLuaLpath(luaDir);
+        statePool = new LuaStatePool(config);
+        if (config.isStatePoolWarmUp()) statePool.warmUp();
         try {
             initLua();
             loadLua();
@@ -60,6 +66,14 @@ public class LuaApplication extends Application implements LuaContext {
     }
 
     public void initLua() throws Exception {
+        String classList = config.getClassListAsset();
+        if (classList != null) {
+            // 在后台线程加载列表中的类, 不阻塞启动
+            final String[] classNames = LuaUtil.readAsset(classList).split("\n");
+            Thread thread = new Thread(() -> ClassUtils.loadClassList(Arrays.asList(classNames)), "ClassList");
+            thread.setDaemon(true);
+            thread.start();
+        }
         L.openLibraries();
         L.openLibrary("luajava");
         L.setExternalLoader(config);
@@ -84,6 +98,10 @@ public class LuaApplication extends Application implements LuaContext {
     public void onTerminate() {
         super.onTerminate();
         onLuaEvent(mOnTerminate);
+        statePool.close();
+        synchronized (this) {
+            if (executor != null) executor.shutdown();
+        }
     }
 
     @Override
@@ -148,6 +166,20 @@ public class LuaApplication extends Application implements LuaContext {
         return L;
     }
 
+    public LuaStatePool getStatePool() {
+        return statePool;
+    }
+
+    /**
+     * 后台执行脚本的线程池, 第一次调用时创建
+     */
+    public synchronized LuaExecutor getExecutor() {
+        if (executor == null) {
+            executor = new LuaExecutor(this, config.getExecutorSize());
+        }
+        return executor;
+    }
+
     @Override
     public LuaConfig getConfig() {
         if (config == null) {
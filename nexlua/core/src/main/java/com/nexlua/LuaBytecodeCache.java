@@ -0,0 +1,179 @@
+package com.nexlua;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.luajava.Lua;
+import com.luajava.LuaException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 模块字节码缓存
+ * <p>
+ * 将 lua_dump 输出的字节码保存在 FILES_DIR/luac 下, 以源文件路径命名,
+ * 并记录 LuaJIT 版本与源文件的时间戳 (或内容哈希), 任一不匹配时回退到源码加载.
+ * 缓存只是加速手段, 读写失败都会被忽略.
+ */
+@SuppressWarnings("IOStreamConstructor")
+public final class LuaBytecodeCache {
+    private static final String CACHE_DIR_NAME = "luac";
+    private static final String CACHE_FILE_SUFFIX = ".luac";
+    // "NLBC", 文件格式变化时修改最低字节
+    private static final int MAGIC = 0x4E4C4201;
+    private static volatile boolean enabled = true;
+    private static volatile String version;
+    private static volatile long apkStamp;
+
+    private LuaBytecodeCache() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        LuaBytecodeCache.enabled = enabled;
+    }
+
+    public static @Nullable File getCacheDir() {
+        return LuaConfig.FILES_DIR == null ? null : new File(LuaConfig.FILES_DIR, CACHE_DIR_NAME);
+    }
+
+    /**
+     * 删除全部缓存
+     */
+    public static void clear() {
+        File dir = getCacheDir();
+        if (dir != null) LuaUtil.rmDir(dir);
+    }
+
+    /**
+     * 安装包内资源 (assets, raw) 的时间戳, 应用更新后缓存随之失效
+     */
+    public static long getApkStamp() {
+        long stamp = apkStamp;
+        if (stamp == 0) {
+            Context context = LuaUtil.getContext();
+            if (context == null) return 0;
+            stamp = new File(context.getApplicationInfo().sourceDir).lastModified();
+            apkStamp = stamp;
+        }
+        return stamp;
+    }
+
+    /**
+     * 尝试从缓存加载模块
+     *
+     * @param path  模块路径, 同时作为 chunk name
+     * @param stamp 源码的时间戳或哈希
+     * @return 成功时栈顶为编译好的函数
+     */
+    public static boolean load(@NonNull Lua L, @NonNull String path, long stamp) {
+        File file = getCacheFile(path);
+        if (file == null || !file.isFile()) return false;
+        String version = getVersion(L);
+        if (version == null) return false;
+        ByteBuffer bytecode;
+        try (FileInputStream stream = new FileInputStream(file); FileChannel channel = stream.getChannel()) {
+            // 不带缓冲地读取文件头, 读完后通道位置即为字节码的偏移
+            DataInputStream in = new DataInputStream(stream);
+            if (in.readInt() != MAGIC
+                    || !version.equals(in.readUTF())
+                    || !path.equals(in.readUTF())
+                    || in.readLong() != stamp) {
+                return false;
+            }
+            int length = in.readInt();
+            long offset = channel.position();
+            if (offset + length != channel.size()) throw new IOException("Truncated bytecode cache: " + file);
+            bytecode = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } catch (IOException | RuntimeException e) {
+            LuaUtil.rmFile(file);
+            return false;
+        }
+        try {
+            L.loadBuffer(bytecode, "@" + path);
+            return true;
+        } catch (LuaException e) {
+            // 字节码与当前 LuaJIT 不兼容
+            LuaUtil.rmFile(file);
+            return false;
+        }
+    }
+
+    /**
+     * 将栈顶刚从源码加载的函数写入缓存, 不改变栈
+     */
+    public static void store(@NonNull Lua L, @NonNull String path, long stamp) {
+        File file = getCacheFile(path);
+        if (file == null) return;
+        String version = getVersion(L);
+        if (version == null) return;
+        ByteBuffer bytecode = L.dump();
+        if (bytecode == null) return;
+        File dir = file.getParentFile();
+        if (dir == null || !dir.isDirectory() && !dir.mkdirs()) return;
+        // 先写临时文件再重命名, 避免其他进程或线程读到半个文件
+        File temp = new File(dir, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            byte[] bytes = new byte[bytecode.remaining()];
+            bytecode.get(bytes);
+            out.writeInt(MAGIC);
+            out.writeUTF(version);
+            out.writeUTF(path);
+            out.writeLong(stamp);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } catch (IOException | RuntimeException e) {
+            LuaUtil.rmFile(temp);
+            return;
+        }
+        if (!temp.renameTo(file)) LuaUtil.rmFile(temp);
+    }
+
+    private static @Nullable File getCacheFile(String path) {
+        if (!enabled) return null;
+        File dir = getCacheDir();
+        if (dir == null) return null;
+        try {
+            return new File(dir, LuaUtil.getMessageDigest(path, "SHA-1") + CACHE_FILE_SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // jit.version 与 jit.arch, 字节码格式随二者变化
+    private static @Nullable String getVersion(Lua L) {
+        String version = LuaBytecodeCache.version;
+        if (version != null) return version;
+        try {
+            L.checkStack(3);
+            L.getGlobal("jit");
+            if (!L.isTable(-1)) {
+                L.pop(1);
+                return null;
+            }
+            L.getField(-1, "version");
+            L.getField(-2, "arch");
+            if (L.isString(-2) && L.isString(-1)) {
+                version = L.toString(-2) + " " + L.toString(-1);
+                LuaBytecodeCache.version = version;
+            }
+            L.pop(3);
+        } catch (LuaException e) {
+            return null;
+        }
+        return version;
+    }
+}
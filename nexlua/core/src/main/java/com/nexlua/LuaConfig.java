@@ -15,10 +15,20 @@ import com.nexlua.module.LuaResourceModule;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 
 public class LuaConfig implements ExternalLoader {
     protected static File FILES_DIR;
     protected ArrayList<LuaModule> LUA_MODULES;
+    // 绝对路径 => 模块, 同一路径以先注册的为准
+    protected final HashMap<String, LuaModule> MODULE_INDEX = new HashMap<>();
+    // 已确认不存在的文件路径
+    protected final HashSet<String> MISSING_PATHS = new HashSet<>();
+    // 当前 package.path 下 模块名 => 模块, 找不到的模块名映射为 null
+    protected final HashMap<String, LuaModule> RESOLVED_MODULES = new HashMap<>();
+    protected String packagePath;
+    protected String[][] packagePathTemplates;
     protected LuaModule welcome;
     protected LuaModule application;
 
@@ -40,11 +50,26 @@ public class LuaConfig implements ExternalLoader {
         this.application = application;
     }
 
-    public LuaModule register(LuaModule module) {
+    public synchronized LuaModule register(LuaModule module) {
         LUA_MODULES.add(module);
+        String path = module.getAbsolutePath();
+        if (!MODULE_INDEX.containsKey(path)) {
+            MODULE_INDEX.put(path, module);
+            // 之前找不到的模块现在可能找得到了
+            MISSING_PATHS.remove(path);
+            RESOLVED_MODULES.clear();
+        }
         return module;
     }
 
+    /**
+     * 清除找不到模块的记录, 在运行时新建了脚本文件后调用
+     */
+    public synchronized void invalidateModules() {
+        MISSING_PATHS.clear();
+        RESOLVED_MODULES.clear();
+    }
+
     public LuaModule registerAssetsModule(String path, String fileName) {
         return register(new LuaAssetsModule(path, fileName));
     }
@@ -61,6 +86,60 @@ public class LuaConfig implements ExternalLoader {
         return register(new LuaStringModule(path, content));
     }
 
+    /**
+     * @return assets 中的类名列表文件, 每行一个完整类名, 用于预热 import 的类查找; 返回 null 时不预热
+     * @see com.luajava.util.ClassUtils#loadClassList(Iterable)
+     */
+    public @Nullable String getClassListAsset() {
+        return null;
+    }
+
+    /**
+     * @return LuaActivity 预先创建的 Lua 状态数, 返回 0 时不使用状态池
+     * @see LuaStatePool
+     */
+    public int getStatePoolSize() {
+        return 1;
+    }
+
+    /**
+     * @return 是否在应用启动后立即预热状态池; 返回 false 时在第一次取用后才开始补充
+     */
+    public boolean isStatePoolWarmUp() {
+        return true;
+    }
+
+    /**
+     * @return 是否异步调用接口代理中返回 void 的方法, 调用在 Lua 状态所在线程排队执行
+     * @see com.luajava.Lua#setProxyExecutor
+     */
+    public boolean isAsyncProxies() {
+        return false;
+    }
+
+    /**
+     * @return 异步调用时是否合并同一方法尚未执行的调用, 只保留最新的参数, 适合传感器等高频回调
+     */
+    public boolean isCoalesceProxies() {
+        return false;
+    }
+
+    /**
+     * @return 是否为 LuaActivity 定义 async 与 await 全局函数, 用协程等待 CompletableFuture 或回调
+     * @see com.luajava.LuaScheduler
+     */
+    public boolean isSchedulerEnabled() {
+        return false;
+    }
+
+    /**
+     * @return LuaExecutor 的工作线程数, 每个线程持有一个独立的 Lua 状态
+     * @see LuaExecutor
+     */
+    public int getExecutorSize() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
     protected String baseCpath, baseLpath;
     public @NonNull String getBaseCpath() {
         return baseCpath;
@@ -78,43 +157,64 @@ public class LuaConfig implements ExternalLoader {
         return getBaseCpath() + luaDir + "/lib?.so;";
     }
 
-    public @Nullable LuaModule getModule(String absolutePath) {
+    public synchronized @Nullable LuaModule getModule(String absolutePath) {
         if (absolutePath == null || absolutePath.isEmpty()) {
             return null;
         }
-        for (LuaModule entry : LUA_MODULES) {
-            final String entryPath = entry.getAbsolutePath();
-            if (entryPath.equals(absolutePath)) {
-                return entry;
-            }
+        LuaModule module = MODULE_INDEX.get(absolutePath);
+        if (module != null || MISSING_PATHS.contains(absolutePath)) {
+            return module;
         }
         File file = new File(absolutePath);
         if (file.exists() && file.isFile() && file.canRead()) {
             return registerFileModule(absolutePath, file);
         }
+        MISSING_PATHS.add(absolutePath);
         return null;
     }
 
     private static final String LUA_NAME_SEP = ".";
     private static final String DIR_SEP = File.separator;
 
-    public @Nullable LuaModule getModule(String name, String packagePath) {
+    public synchronized @Nullable LuaModule getModule(String name, String packagePath) {
         if (name == null || packagePath == null) {
             return null;
         }
+        if (!packagePath.equals(this.packagePath)) {
+            this.packagePath = packagePath;
+            this.packagePathTemplates = compileTemplates(packagePath);
+            RESOLVED_MODULES.clear();
+        }
+        LuaModule module = RESOLVED_MODULES.get(name);
+        if (module != null || RESOLVED_MODULES.containsKey(name)) {
+            return module;
+        }
         String moduleFilePath = name.replace(LUA_NAME_SEP, DIR_SEP);
-        String[] templates = packagePath.split(";", -1);
-        for (String template : templates) {
-            if (template.isEmpty()) {
-                continue;
+        StringBuilder builder = new StringBuilder();
+        for (String[] parts : packagePathTemplates) {
+            builder.setLength(0);
+            builder.append(parts[0]);
+            for (int i = 1; i < parts.length; i++) {
+                builder.append(moduleFilePath).append(parts[i]);
             }
-            String filename = template.replace("?", moduleFilePath);
-            LuaModule module = getModule(filename);
+            module = getModule(builder.toString());
             if (module != null) {
-                return module;
+                break;
             }
         }
-        return null;
+        RESOLVED_MODULES.put(name, module);
+        return module;
+    }
+
+    // 按 ? 预先切分每个模板, 查找时只需拼接
+    private static String[][] compileTemplates(String packagePath) {
+        ArrayList<String[]> templates = new ArrayList<>();
+        for (String template : packagePath.split(";", -1)) {
+            if (!template.isEmpty()) {
+                templates.add(template.split("\\?", -1));
+            }
+        }
+        return templates.toArray(new String[0][]);
     }
 
     public @Nullable LuaModule getModule(LuaContext context, String name) {
@@ -0,0 +1,286 @@
+package com.nexlua;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.luajava.Lua;
+import com.luajava.LuaException;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 多状态的 Lua 任务执行器
+ * <p>
+ * 持有若干个独立的 Lua 状态, 每个状态固定在自己的线程上运行, 任务以 (模块, 函数, 参数) 的形式提交,
+ * 由排队最少的线程执行, 各线程互不加锁, 计算密集的脚本可以同时使用多个核心.
+ * <p>
+ * 各状态与 LuaActivity 的状态相互独立, 全局变量不共享, 参数与结果只能是可以转换或复制的值.
+ */
+public final class LuaExecutor {
+    private static final Runnable STOP = () -> {
+    };
+    private final LuaApplication app;
+    private final Worker[] workers;
+    // 只在持有 this 的锁时修改, 保证 STOP 之后不再有任务入队
+    private volatile boolean shutdown;
+
+    public LuaExecutor(@NonNull LuaApplication app, int size) {
+        this.app = app;
+        workers = new Worker[Math.max(1, size)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i);
+            workers[i].start();
+        }
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * 在工作线程中执行 require(module)[function](...), 结果转换为 Java 对象, 表转换为 Map
+     */
+    public @NonNull Future<Object[]> submit(@NonNull String module, @NonNull String function, @Nullable Object... args) {
+        return submit(-1, module, function, args);
+    }
+
+    /**
+     * 与 {@link #submit(String, String, Object...)} 相同, 但固定由第 worker 个线程执行,
+     * 同一线程上的任务按提交顺序执行并共享模块内的状态
+     */
+    public @NonNull Future<Object[]> submit(int worker, @NonNull String module, @NonNull String function, @Nullable Object... args) {
+        return execute(worker, (w, L) -> {
+            int top = L.getTop();
+            try {
+                int n = call(L, module, function, args);
+                Object[] results = new Object[n];
+                for (int i = 0; i < n; i++) {
+                    results[i] = L.toJavaObject(top + 1 + i, Object.class);
+                }
+                return results;
+            } finally {
+                L.setTop(top);
+            }
+        });
+    }
+
+    /**
+     * 执行 require(module)[function](...), 结果留在工作线程的状态中, 用 {@link Results#pushTo(Lua)} 复制到其他状态
+     * <p>
+     * 结果必须调用 {@link Results#pushTo(Lua)} 或 {@link Results#release()}, 否则一直占用工作线程状态中的引用,
+     * 直到执行器关闭.
+     */
+    public @NonNull Future<Results> call(@NonNull String module, @NonNull String function, @Nullable Object... args) {
+        return call(-1, module, function, args);
+    }
+
+    public @NonNull Future<Results> call(int worker, @NonNull String module, @NonNull String function, @Nullable Object... args) {
+        return execute(worker, (w, L) -> {
+            int top = L.getTop();
+            try {
+                int n = call(L, module, function, args);
+                int[] refs = new int[n];
+                for (int i = n - 1; i >= 0; i--) {
+                    refs[i] = L.ref();
+                }
+                return new Results(w, refs);
+            } finally {
+                L.setTop(top);
+            }
+        });
+    }
+
+    /**
+     * 停止所有工作线程, 已提交的任务执行完后关闭各自的状态
+     */
+    public synchronized void shutdown() {
+        if (shutdown) return;
+        shutdown = true;
+        for (Worker worker : workers) {
+            worker.queue.offer(STOP);
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @return 各线程排队中的任务数
+     */
+    public int[] getQueueSizes() {
+        int[] sizes = new int[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            sizes[i] = workers[i].queue.size();
+        }
+        return sizes;
+    }
+
+    private <T> Future<T> execute(int index, Task<T> task) {
+        Worker worker = index < 0 ? getIdleWorker() : workers[index % workers.length];
+        FutureTask<T> future = new FutureTask<>(() -> {
+            Lua L = worker.getLua();
+            synchronized (L) {
+                return task.run(worker, L);
+            }
+        });
+        synchronized (this) {
+            if (shutdown) throw new RejectedExecutionException("LuaExecutor has been shut down");
+            worker.queue.offer(future);
+        }
+        return future;
+    }
+
+    private Worker getIdleWorker() {
+        Worker idle = workers[0];
+        int min = idle.queue.size();
+        for (int i = 1; i < workers.length && min > 0; i++) {
+            int size = workers[i].queue.size();
+            if (size < min) {
+                idle = workers[i];
+                min = size;
+            }
+        }
+        return idle;
+    }
+
+    // require(module)[function](...), 返回结果数
+    private static int call(Lua L, String module, String function, Object[] args) throws LuaException {
+        L.checkStack(3);
+        L.getGlobal("require");
+        L.push(module);
+        L.pCall(1, 1);
+        if (!L.isTable(-1)) {
+            throw new LuaException("module '" + module + "' did not return a table");
+        }
+        L.getField(-1, function);
+        L.remove(-2);
+        if (!L.isFunction(-1)) {
+            throw new LuaException("module '" + module + "' has no function '" + function + "'");
+        }
+        return L.pCall(L.pushAll(args, Lua.Conversion.SEMI), -1);
+    }
+
+    private Lua newState(Worker worker) throws LuaException {
+        Lua L = new Lua(app);
+        LuaConfig config = app.getConfig();
+        if (config.isAsyncProxies()) {
+            L.setProxyExecutor(worker.queue::offer, config.isCoalesceProxies(), worker);
+        }
+        L.openLibraries();
+        L.openLibrary("luajava");
+        L.setExternalLoader(config);
+        L.getGlobal("package");
+        if (L.isTable(-1)) {
+            L.setField(-1, "path", app.getLuaLpath());
+            L.setField(-1, "cpath", app.getLuaCpath());
+        }
+        L.pop(1);
+        L.pushGlobal(app, "application", "app");
+        return L;
+    }
+
+    private interface Task<T> {
+        T run(Worker worker, Lua L) throws Exception;
+    }
+
+    /**
+     * 留在工作线程状态中的一组结果
+     */
+    public static final class Results {
+        private final Worker worker;
+        private final Lua L;
+        private int[] refs;
+
+        private Results(Worker worker, int[] refs) {
+            this.worker = worker;
+            this.L = worker.L;
+            this.refs = refs;
+        }
+
+        public int size() {
+            return refs == null ? 0 : refs.length;
+        }
+
+        /**
+         * 把全部结果复制到 to 的栈顶, 之后释放这些结果
+         *
+         * @return 压入的值的个数
+         */
+        public int pushTo(@NonNull Lua to) throws LuaException {
+            synchronized (L) {
+                if (refs == null || worker.closed) throw new LuaException("Results have already been released");
+                to.checkStack(refs.length);
+                int n = 0;
+                try {
+                    for (int ref : refs) {
+                        n += L.refCopyTo(to, ref);
+                    }
+                } catch (LuaException e) {
+                    to.pop(n);
+                    throw e;
+                } finally {
+                    release();
+                }
+                return n;
+            }
+        }
+
+        /**
+         * 释放结果而不复制
+         */
+        public void release() {
+            synchronized (L) {
+                if (refs == null || worker.closed) return;
+                for (int ref : refs) {
+                    L.unRef(ref);
+                }
+                refs = null;
+            }
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        private Lua L;
+        // 状态已关闭, 只在持有 L 的锁时修改
+        private boolean closed;
+
+        Worker(int index) {
+            super("LuaExecutor-" + index);
+            setDaemon(true);
+        }
+
+        synchronized Lua getLua() throws LuaException {
+            if (L == null) L = newState(this);
+            return L;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Runnable task;
+                while ((task = queue.take()) != STOP) {
+                    task.run();
+                }
+            } catch (InterruptedException ignored) {
+            }
+            // 线程被中断时留在队列中的任务不会再执行, 取消它们以免 get() 一直等待
+            Runnable task;
+            while ((task = queue.poll()) != null) {
+                if (task instanceof Future) ((Future<?>) task).cancel(false);
+            }
+            synchronized (this) {
+                if (L != null) {
+                    synchronized (L) {
+                        closed = true;
+                        L.close();
+                    }
+                }
+            }
+        }
+    }
+}
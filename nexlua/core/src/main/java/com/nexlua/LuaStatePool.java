@@ -0,0 +1,139 @@
+package com.nexlua;
+
+import androidx.annotation.NonNull;
+
+import com.luajava.Lua;
+import com.luajava.LuaException;
+import com.luajava.LuaHandler;
+
+import java.util.ArrayDeque;
+
+/**
+ * Lua 状态池
+ * <p>
+ * 在后台线程预先创建 Lua 状态并打开标准库与 luajava, LuaActivity 启动时直接取用,
+ * 只需绑定 LuaHandler, package.path 与全局变量. 运行过脚本的状态无法还原,
+ * 归还时关闭, 再由后台线程补充新的状态.
+ */
+public final class LuaStatePool {
+    private final LuaConfig config;
+    private final int size;
+    private final ArrayDeque<Lua> states = new ArrayDeque<>();
+    // 后台线程正在创建的状态数
+    private int pending;
+    private boolean closed;
+    private long hits, misses;
+
+    public LuaStatePool(@NonNull LuaConfig config) {
+        this.config = config;
+        this.size = Math.max(0, config.getStatePoolSize());
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 在后台线程补足状态池
+     */
+    public void warmUp() {
+        int count;
+        synchronized (this) {
+            if (closed) return;
+            count = size - states.size() - pending;
+            if (count <= 0) return;
+            pending += count;
+        }
+        final int n = count;
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                Lua L = null;
+                try {
+                    L = newState();
+                } catch (Exception e) {
+                    Lua.logError("LuaStatePool:\n" + LuaException.getFullMessage(e));
+                }
+                synchronized (this) {
+                    pending--;
+                    if (L != null && !closed) {
+                        states.addLast(L);
+                        L = null;
+                    }
+                }
+                if (L != null) L.close();
+            }
+        }, "LuaStatePool");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * 取出一个已初始化的状态, 池为空时在当前线程创建
+     */
+    public @NonNull Lua acquire(@NonNull LuaHandler handler) throws LuaException {
+        Lua L;
+        synchronized (this) {
+            L = states.pollFirst();
+            if (L != null) hits++; else misses++;
+        }
+        warmUp();
+        if (L == null) L = newState();
+        L.setHandler(handler);
+        return L;
+    }
+
+    /**
+     * 归还用完的状态, 运行过脚本的状态会被关闭
+     */
+    public void release(@NonNull Lua L) {
+        L.setHandler(null);
+        L.close();
+    }
+
+    /**
+     * 关闭池中所有状态, 之后取用的状态都在当前线程创建
+     */
+    public void close() {
+        ArrayDeque<Lua> states;
+        synchronized (this) {
+            closed = true;
+            states = new ArrayDeque<>(this.states);
+            this.states.clear();
+        }
+        for (Lua L : states) {
+            L.close();
+        }
+    }
+
+    public synchronized int getIdleCount() {
+        return states.size();
+    }
+
+    /**
+     * @return 从池中直接取到状态的次数
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return 池为空而在调用线程创建状态的次数
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private @NonNull Lua newState() throws LuaException {
+        Lua L = new Lua();
+        try {
+            L.openLibraries();
+            L.openLibrary("luajava");
+        } catch (LuaException e) {
+            L.close();
+            throw e;
+        }
+        L.setExternalLoader(config);
+        return L;
+    }
+}
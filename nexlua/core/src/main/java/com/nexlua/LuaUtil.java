@@ -15,6 +15,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -116,6 +118,20 @@ public final class LuaUtil {
         return readStreamBufferWithAutoClose(new FileInputStream(file), (int) file.length());
     }
 
+    // 映射在通道关闭后依然有效, 直到缓冲区被回收
+    public static MappedByteBuffer mapFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public static MappedByteBuffer mapFileDescriptor(AssetFileDescriptor fileDescriptor) throws IOException {
+        // createInputStream 的流关闭时会一并关闭 fileDescriptor
+        try (FileInputStream in = fileDescriptor.createInputStream(); FileChannel channel = in.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, fileDescriptor.getStartOffset(), fileDescriptor.getLength());
+        }
+    }
+
     public static byte[] readFileBytes(File file) throws IOException {
         return readStreamBytesWithAutoClose(new FileInputStream(file));
     }
@@ -195,6 +211,17 @@ public final class LuaUtil {
         }
     }
 
+    // 未压缩的 assets 直接映射安装包中的对应区域, 压缩的退回到读取
+    public static ByteBuffer mapAsset(String assetPath) throws IOException {
+        AssetFileDescriptor fileDescriptor;
+        try {
+            fileDescriptor = assetManager.openFd(assetPath);
+        } catch (IOException e) {
+            return wrap(readAssetBytes(assetPath));
+        }
+        return mapFileDescriptor(fileDescriptor);
+    }
+
     public static byte[] readAssetBytes(String assetPath) throws IOException {
         return readStreamBytesWithAutoClose(assetManager.open(assetPath));
     }
@@ -239,6 +266,16 @@ public final class LuaUtil {
         }
     }
 
+    public static ByteBuffer mapRaw(int id) throws IOException {
+        AssetFileDescriptor fileDescriptor;
+        try {
+            fileDescriptor = context.getResources().openRawResourceFd(id);
+        } catch (Exception e) {
+            return wrap(readRawBytes(id));
+        }
+        return mapFileDescriptor(fileDescriptor);
+    }
+
     public static byte[] readRawBytes(int id) throws IOException {
         return readStreamBytesWithAutoClose(context.getResources().openRawResource(id));
     }
@@ -2,6 +2,8 @@ package com.nexlua.module;
 
 import com.nexlua.LuaUtil;
 
+import java.nio.ByteBuffer;
+
 public final class LuaAssetsModule extends LuaCacheModule {
     private final String assetsName;
 
@@ -11,7 +13,7 @@ public final class LuaAssetsModule extends LuaCacheModule {
     }
 
     @Override
-    public byte[] getBytes() throws Exception {
-        return LuaUtil.readAssetBytes(assetsName);
+    public ByteBuffer getBuffer() throws Exception {
+        return LuaUtil.mapAsset(assetsName);
     }
 }
\ No newline at end of file
@@ -1,28 +1,40 @@
 package com.nexlua.module;
 
 import com.luajava.Lua;
+import com.nexlua.LuaBytecodeCache;
 
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
 
 public abstract class LuaCacheModule extends LuaAbstractModule {
-    protected transient SoftReference<byte[]> cache;
+    protected transient SoftReference<ByteBuffer> cache;
 
     public LuaCacheModule(String path) {
         super(path);
     }
 
-    public abstract byte[] getBytes() throws Exception;
+    /**
+     * @return 内容的 direct buffer, 尽量为映射的文件区域
+     */
+    public abstract ByteBuffer getBuffer() throws Exception;
+
+    // 安装包内的资源随应用更新而变化
+    public long getStamp() {
+        return LuaBytecodeCache.getApkStamp();
+    }
 
     @Override
     public int load(Lua L) throws Exception {
-        byte[] content;
-        if (cache != null) {
-            content = this.cache.get();
-        } else {
-            content = getBytes();
-            this.cache = new SoftReference<>(content);
+        long stamp = getStamp();
+        if (!LuaBytecodeCache.load(L, path, stamp)) {
+            ByteBuffer content = cache != null ? cache.get() : null;
+            if (content == null) {
+                content = getBuffer();
+                this.cache = new SoftReference<>(content);
+            }
+            L.loadBuffer(content, "@" + path);
+            LuaBytecodeCache.store(L, path, stamp);
         }
-        L.loadStringBuffer(content, content.length, "@" + path);
         L.insert(-2);
         return L.pCall(1, -1);
     }
@@ -1,6 +1,7 @@
 package com.nexlua.module;
 
 import com.luajava.Lua;
+import com.nexlua.LuaBytecodeCache;
 import com.nexlua.LuaUtil;
 
 import java.io.File;
@@ -15,8 +16,11 @@ public final class LuaFileModule extends LuaAbstractModule {
 
     @Override
     public int load(Lua L) throws Exception {
-        byte[] content = LuaUtil.readFileBytes(file);
-        L.loadStringBuffer(content, content.length, "@" + path);
+        long stamp = file.lastModified() * 31 + file.length();
+        if (!LuaBytecodeCache.load(L, path, stamp)) {
+            L.loadBuffer(LuaUtil.mapFile(file), "@" + path);
+            LuaBytecodeCache.store(L, path, stamp);
+        }
         L.insert(-2);
         return L.pCall(1, -1);
     }
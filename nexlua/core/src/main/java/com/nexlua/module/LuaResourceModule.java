@@ -2,6 +2,8 @@ package com.nexlua.module;
 
 import com.nexlua.LuaUtil;
 
+import java.nio.ByteBuffer;
+
 public final class LuaResourceModule extends LuaCacheModule {
     private final int resId;
 
@@ -11,7 +13,7 @@ public final class LuaResourceModule extends LuaCacheModule {
     }
 
     @Override
-    public byte[] getBytes() throws Exception {
-        return LuaUtil.readRawBytes(resId);
+    public ByteBuffer getBuffer() throws Exception {
+        return LuaUtil.mapRaw(resId);
     }
 }
@@ -1,10 +1,16 @@
 package com.nexlua.module;
 
 import com.luajava.Lua;
+import com.nexlua.LuaBytecodeCache;
+import com.nexlua.LuaUtil;
+
+import java.security.NoSuchAlgorithmException;
 
 public final class LuaStringModule extends LuaAbstractModule {
     private final String content;
     private final int length;
+    // 内容 SHA-1 的前 64 位, 0 表示尚未计算
+    private long stamp;
 
     public LuaStringModule(String path, String content) {
         super(path);
@@ -14,8 +20,28 @@ public final class LuaStringModule extends LuaAbstractModule {
 
     @Override
     public int load(Lua L) throws Exception {
-        L.loadStringBuffer(content, length, "@" + path);
+        long stamp = getStamp();
+        if (stamp == 0 || !LuaBytecodeCache.load(L, path, stamp)) {
+            L.loadStringBuffer(content, length, "@" + path);
+            if (stamp != 0) LuaBytecodeCache.store(L, path, stamp);
+        }
         L.insert(-2);
         return L.pCall(1, -1);
     }
+
+    // 长度加 hashCode 容易碰撞, 碰撞时会加载到其他内容的字节码, 因此使用内容摘要
+    private long getStamp() {
+        long stamp = this.stamp;
+        if (stamp == 0) {
+            String digest;
+            try {
+                digest = LuaUtil.getMessageDigest(content, "SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                return 0;
+            }
+            stamp = Long.parseLong(digest.substring(0, 8), 16) << 32 | Long.parseLong(digest.substring(8, 16), 16);
+            this.stamp = stamp;
+        }
+        return stamp;
+    }
 }
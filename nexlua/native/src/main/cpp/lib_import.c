@@ -26,7 +26,6 @@ static int import_mt_index(lua_State *L) {
     }
     // [_G, key]
     const char *key = lua_tostring(L, 2);
-    size_t keyLen = strlen(key);
     JNIEnv *env = getJNIEnv(L);
     // push __import
     lua_getfield(L, 1, "__import");
@@ -36,57 +35,60 @@ static int import_mt_index(lua_State *L) {
         lua_pushvalue(L, -1);
         lua_setfield(L, -3, "__import");
     }
+    // push __import.missing, names no imported package has, reset by every package import
+    lua_getfield(L, -1, "missing");
+    if (!lua_istable(L, -1)) {
+        lua_pop(L, 1);
+        lua_createtable(L, 0, 8);
+        lua_pushvalue(L, -1);
+        lua_setfield(L, -3, "missing");
+    }
+    lua_pushvalue(L, 2);
+    lua_rawget(L, -2);
+    if (lua_toboolean(L, -1)) {
+        lua_pop(L, 3);
+        return 0;
+    }
+    lua_pop(L, 1);
     // push __import.packages
-    lua_getfield(L, -1, "packages");
+    lua_getfield(L, -2, "packages");
     if (!lua_istable(L, -1)) {
         lua_pop(L, 1);
         lua_createtable(L, 0, 1);
         lua_pushvalue(L, -1);
-        lua_setfield(L, -3, "packages");
+        lua_setfield(L, -4, "packages");
     }
+    // [_G, key, __import, __import.missing, __import.packages]
     int len = (int) lua_objlen(L, -1);
     for (int i = 1; i <= len; i++) {
         // push __import.packages[i]
         lua_rawgeti(L, -1, i);
         if (lua_type(L, -1) == LUA_TSTRING) {
-            const char *pkgName = lua_tostring(L, -1);
-            size_t pkgLen = strlen(pkgName);
-            char *fullName = malloc(pkgLen + keyLen + 2);
-            if (!fullName) luaJ_error_memory(L);
-            memcpy(fullName, pkgName, pkgLen);
-            fullName[pkgLen] = '.';
-            memcpy(fullName + pkgLen + 1, key, keyLen);
-            fullName[pkgLen + keyLen + 1] = '\0';
-            int top = lua_gettop(L);
-            lua_pop(L, 1);
-            // [_G, key, __import, __import.packages, __import.packages[i]]
+            // the full name stays on the stack, no need to copy it
+            const char *fullName = lua_pushfstring(L, "%s.%s", lua_tostring(L, -1), key);
             jstring string = ToString(fullName);
             int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
-                                                     com_luajava_LuaJava_bindClass, (jlong) L,
+                                                     com_luajava_LuaJava_findClass, luaJ_getjstate(L),
                                                      string);
             DeleteString(string);
+            // [..., __import.packages[i], fullName, (class)]
             if (!checkIfError(env, L) && result) {
-                char *simpleName = strdup(get_simple_name(fullName));
-                free(fullName);
-                if (!simpleName) luaJ_error_memory(L);
                 lua_pushvalue(L, -1);
-                lua_setglobal(L, simpleName);
-                free(simpleName);
-                lua_remove(L, 4); // pop __import.packages
-                lua_remove(L, 3); // pop __import
-                lua_remove(L, 2); // pop key
-                lua_remove(L, 1); // pop _G
+                lua_setglobal(L, get_simple_name(fullName));
                 return 1;
-            } else {
-                free(fullName);
-                lua_pushnil(L);
-                lua_setglobal(L, JAVA_GLOBAL_THROWABLE);
-                lua_settop(L, top);
             }
+            lua_pushnil(L);
+            lua_setglobal(L, JAVA_GLOBAL_THROWABLE);
+            lua_settop(L, 6);
         }
         // pop packages[i]
         lua_pop(L, 1);
     }
+    lua_pop(L, 1);
+    // __import.missing[key] = true
+    lua_pushvalue(L, 2);
+    lua_pushboolean(L, 1);
+    lua_rawset(L, -3);
     lua_pop(L, 2);
     return 0;
 }
@@ -120,6 +122,9 @@ static int local_import(lua_State *L, int idx) {
         lua_pushlstring(L, name, length - 2);
         lua_rawseti(L, -2, size + 1);
         lua_pop(L, 1);
+        // the new package may have the classes earlier lookups missed
+        lua_pushnil(L);
+        lua_setfield(L, -2, "missing");
         // update __import.injected
         lua_getfield(L, -1, "injected");
         if (!lua_toboolean(L, -1)) {
@@ -154,7 +159,7 @@ static int local_import(lua_State *L, int idx) {
     int top = lua_gettop(L);
     jstring string = ToString(name);
     int result = (*env)->CallStaticIntMethod(env, com_luajava_LuaJava,
-                                             com_luajava_LuaJava_bindClass, (jlong) L, string);
+                                             com_luajava_LuaJava_findClass, luaJ_getjstate(L), string);
     DeleteString(string);
     if (!(*env)->ExceptionOccurred(env) && result) {
         char *simpleName = strdup(get_simple_name(name));